@@ -1,29 +1,38 @@
 package nl.uu.mal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Class representing an action, performable by a {@link Skater}. The basic action consists of an angle describing the
  * direction within the global coordinate system of the {@link SkatingRink} and a fixed distance per simulation round.
- * Additionally there are values for cumulated and mean payoffs, used for reinforcement learning methods.
  *
- * Actions are supposed to be used within a list, holding all possible actions for each {@link Skater}. Therefore
- * {@link Comparable} is being implemented to realize an ordering of actions by payoffs, which is needed when an
- * exploitation strategy leads to collision and the action with the next highest payoff is being chosen.
+ * Actions are stateless descriptors, shared by all skaters. The payoffs of an action, used for reinforcement learning
+ * methods, are kept per skater in the {@link PopulationStore} of the skating rink, addressed by the slot of the skater
+ * and the index of the action. Thus the number of objects on the heap does not grow with the population.
  *
  * @author h.nunner
  */
-public class Action implements Comparable<Action> {
+public class Action {
+
+	// all available actions, ordered by angle
+	private static final List<Action> AVAILABLE_ACTIONS;
+	static {
+		// step through the available angles and initialize actions
+		List<Action> availableActions = new ArrayList<Action>();
+		int currentAngle = 0;
+		while (currentAngle < 360) {
+			availableActions.add(new Action(currentAngle, Properties.STD_DISTANCE));
+			currentAngle += Properties.BASE_ANGLE;
+		}
+		AVAILABLE_ACTIONS = Collections.unmodifiableList(availableActions);
+	}
 
 	// discription of movement within global coordinate system of the skating rink
 	private int angle;
 	private int distance;
 
-	// payoffs for reinforcement learning
-	private int cumulatedPayoff;
-	private double meanPayoff;
-
 
 	/**
 	 * Constructor - creating a new action
@@ -36,33 +45,27 @@ public class Action implements Comparable<Action> {
 	private Action(int angle, int distance) {
 		this.angle = angle;
 		this.distance = distance;
-		this.cumulatedPayoff = 0;
-		this.meanPayoff = 0.0;
 	}
 
 
 	/**
-	 * Creates a list of available actions.
+	 * Gets the list of available actions, shared by all skaters.
 	 *
-	 * @return the list of available actions
+	 * @return the unmodifiable list of available actions, ordered by angle
 	 */
-	public static List<Action> createAvailableActions() {
-		// step through the available angles and initialize actions
-		List<Action> availableActions = new ArrayList<Action>();
-		int currentAngle = 0;
-		while (currentAngle < 360) {
-			availableActions.add(new Action(currentAngle, Properties.STD_DISTANCE));
-			currentAngle += Properties.BASE_ANGLE;
-		}
-		return availableActions;
+	public static List<Action> getAvailableActions() {
+		return AVAILABLE_ACTIONS;
 	}
 
-
 	/**
-	 * For ordering a list of actions by cumulated payoff.
+	 * Gets an available action by its index.
+	 *
+	 * @param index
+	 * 			the index of the action, when ordered by angle
+	 * @return the action
 	 */
-	public int compareTo(Action o) {
-		return Integer.compare(o.getCumulatedPayoff(), this.cumulatedPayoff);
+	public static Action get(int index) {
+		return AVAILABLE_ACTIONS.get(index);
 	}
 
 
@@ -74,58 +77,17 @@ public class Action implements Comparable<Action> {
 	}
 
 	/**
-	 * @return the distance
+	 * @return the index of the action, when ordered by angle
 	 */
-	public int getDistance() {
-		return distance;
+	public int getIndex() {
+		return angle / Properties.BASE_ANGLE;
 	}
 
 	/**
-	 * @return the cumulatedPayoff
-	 */
-	public int getCumulatedPayoff() {
-		return cumulatedPayoff;
-	}
-
-	/**
-	 * @deprecated - use giveHighReward() and giveLowReward() instead. Kept only for testing purposes.
-	 *
-	 * @param cumulatedPayoff the cumulatedPayoff to set
-	 */
-	@Deprecated
-	public void setCumulatedPayoff(int cumulatedPayoff) {
-		this.cumulatedPayoff = cumulatedPayoff;
-	}
-
-	/**
-	 * Increases the cumulated payoff with a high reward
-	 */
-	public void giveHighReward() {
-		this.cumulatedPayoff += Properties.HIGH_REWARD;
-	}
-
-	/**
-	 * Increases the cumulated payoff with a low reward
-	 */
-	public void giveLowReward() {
-		this.cumulatedPayoff += Properties.LOW_REWARD;
-	}
-
-	/**
-	 * @return the meanPayoff
-	 */
-	public double getMeanPayoff() {
-		return meanPayoff;
-	}
-
-	/**
-	 * Updates the mean payoff based on the cumulated payoff and the simulation round.
-	 *
-	 * @param simulationRound
-	 * 			the simulation round (starting with round 1 - do not confuse with index starting at 0)
+	 * @return the distance
 	 */
-	public void updateMeanPayoff(int simulationRound) {
-		this.meanPayoff = Double.valueOf(cumulatedPayoff) / Double.valueOf(simulationRound);
+	public int getDistance() {
+		return distance;
 	}
 
 }
@@ -0,0 +1,163 @@
+package nl.uu.mal;
+
+import java.util.Arrays;
+
+/**
+ * Class representing a cache of blocked movements within a {@link SkatingRink}. The surface is divided into cells (see
+ * {@link CellGrid}), each carrying a version counter that is increased whenever a skater enters, leaves or moves
+ * within the cell. The cells are at least as large as the collision radius plus the standard distance, so all skaters
+ * that may block a movement are located in the cell of the moving skater or in one of its adjacent cells.
+ *
+ * When a movement is blocked, the cell of the skater and the sum of the versions of its neighbourhood are stored as
+ * stamp for the skater and the action. As versions only increase, the stamp stays equal exactly as long as nothing
+ * within the neighbourhood moved, including the skater itself. Until then, the same movement is known to be blocked
+ * without checking for collisions.
+ *
+ * @author h.nunner
+ */
+public class BlockedMoveCache {
+
+	// grid
+	private CellGrid grid;
+	private long[] versions;				// per cell
+
+	// stamps of blocked movements, indexed by skater index * ACTION_COUNT + action index (0 = none)
+	private long[] stamps;
+	private int[] stampCells;
+
+
+	/**
+	 * Constructor - creates a new cache of blocked movements.
+	 *
+	 * @param topology
+	 * 			the topology of the skating rink
+	 * @param minCellSize
+	 * 			the minimum size of a cell
+	 */
+	public BlockedMoveCache(Topology topology, double minCellSize) {
+		this.grid = new CellGrid(topology, minCellSize);
+		this.versions = new long[this.grid.getCellCount()];
+		this.stamps = new long[0];
+		this.stampCells = new int[0];
+	}
+
+
+	/**
+	 * Gets the current stamp of the neighbourhood of a cell.
+	 *
+	 * @param cell
+	 * 			the index of the cell
+	 * @return the sum of the versions of all cells within the neighbourhood, always positive
+	 */
+	private long getStamp(int cell) {
+		int[] neighbourhood = this.grid.getNeighbourhood(cell);
+		long stamp = 1;
+		for (int i = 0; i < neighbourhood.length; i++) {
+			stamp += this.versions[neighbourhood[i]];
+		}
+		return stamp;
+	}
+
+	/**
+	 * Checks whether a movement is known to be blocked, as nothing moved near the skater since it was last blocked.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @param x
+	 * 			the current x-coordinate of the skater
+	 * @param y
+	 * 			the current y-coordinate of the skater
+	 * @return true if the movement is known to be blocked, false if it needs to be checked
+	 */
+	public boolean isBlocked(int skaterIndex, int actionIndex, double x, double y) {
+		int index = skaterIndex * Properties.ACTION_COUNT + actionIndex;
+		if (index >= this.stamps.length) {
+			return false;
+		}
+		int cell = this.grid.getCell(x, y);
+		return this.stampCells[index] == cell && this.stamps[index] == getStamp(cell);
+	}
+
+	/**
+	 * Remembers a blocked movement.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @param x
+	 * 			the current x-coordinate of the skater
+	 * @param y
+	 * 			the current y-coordinate of the skater
+	 */
+	public void setBlocked(int skaterIndex, int actionIndex, double x, double y) {
+		int index = skaterIndex * Properties.ACTION_COUNT + actionIndex;
+		if (index >= this.stamps.length) {
+			int capacity = Math.max(index + 1, 2 * this.stamps.length);
+			this.stamps = Arrays.copyOf(this.stamps, capacity);
+			this.stampCells = Arrays.copyOf(this.stampCells, capacity);
+		}
+		int cell = this.grid.getCell(x, y);
+		this.stampCells[index] = cell;
+		this.stamps[index] = getStamp(cell);
+	}
+
+	/**
+	 * Moves the stamps of the skaters to other rows.
+	 *
+	 * @param slots
+	 * 			the new row per current row, for all skaters of the population
+	 */
+	public void permute(int[] slots) {
+		// complete rows for all skaters, as the stamps only grow as far as the last blocked movement
+		int length = Math.max(this.stamps.length, slots.length * Properties.ACTION_COUNT);
+		long[] stamps = Arrays.copyOf(this.stamps, length);
+		int[] stampCells = Arrays.copyOf(this.stampCells, length);
+		long[] permutedStamps = new long[length];
+		int[] permutedCells = new int[length];
+		for (int i = 0; i < slots.length; i++) {
+			int from = i * Properties.ACTION_COUNT;
+			int to = slots[i] * Properties.ACTION_COUNT;
+			System.arraycopy(stamps, from, permutedStamps, to, Properties.ACTION_COUNT);
+			System.arraycopy(stampCells, from, permutedCells, to, Properties.ACTION_COUNT);
+		}
+		this.stamps = permutedStamps;
+		this.stampCells = permutedCells;
+	}
+
+	/**
+	 * Registers a skater appearing at a position.
+	 *
+	 * @param x
+	 * 			the x-coordinate of the skater
+	 * @param y
+	 * 			the y-coordinate of the skater
+	 */
+	public void added(double x, double y) {
+		this.versions[this.grid.getCell(x, y)]++;
+	}
+
+	/**
+	 * Registers a movement of a skater.
+	 *
+	 * @param fromX
+	 * 			the previous x-coordinate of the skater
+	 * @param fromY
+	 * 			the previous y-coordinate of the skater
+	 * @param toX
+	 * 			the new x-coordinate of the skater
+	 * @param toY
+	 * 			the new y-coordinate of the skater
+	 */
+	public void moved(double fromX, double fromY, double toX, double toY) {
+		int fromCell = this.grid.getCell(fromX, fromY);
+		int toCell = this.grid.getCell(toX, toY);
+		this.versions[fromCell]++;
+		if (toCell != fromCell) {
+			this.versions[toCell]++;
+		}
+	}
+
+}
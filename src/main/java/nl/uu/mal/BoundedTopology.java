@@ -0,0 +1,80 @@
+package nl.uu.mal;
+
+/**
+ * Topology of a bounded rectangle: all four sides are walls.
+ *
+ * Nothing wraps around, so positions outside of the rectangle cannot be reached, and distances and directions are
+ * measured straight within the rectangle, as on the plane.
+ *
+ * @author h.nunner
+ */
+public final class BoundedTopology extends Topology {
+
+	/**
+	 * Constructor - creates a new bounded rectangle.
+	 *
+	 * @param width
+	 * 			the width of the rectangular surface
+	 * @param height
+	 * 			the height of the rectangular surface
+	 */
+	public BoundedTopology(double width, double height) {
+		super(width, height);
+	}
+
+	/**
+	 * Checks whether a position lies within the rectangle. Positions are never moved, as every side is a wall.
+	 *
+	 * @param x
+	 * 			the x-coordinate, possibly outside of the surface
+	 * @param y
+	 * 			the y-coordinate, possibly outside of the surface
+	 * @return the same position, or null if the position lies outside of the rectangle
+	 */
+	@Override
+	public Position wrap(double x, double y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return null;
+		}
+		return new Position(x, y);
+	}
+
+	/**
+	 * Gets the squared straight distance between two positions.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the squared distance
+	 */
+	@Override
+	public double squaredDistance(double x1, double y1, double x2, double y2) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Gets the direction of the straight way between two positions.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the angle of the direction in degrees, within [-180, 180]
+	 */
+	@Override
+	public double direction(double x1, double y1, double x2, double y2) {
+		return Math.toDegrees(Math.atan2(y2 - y1, x2 - x1));
+	}
+
+}
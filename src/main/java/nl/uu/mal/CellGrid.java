@@ -0,0 +1,108 @@
+package nl.uu.mal;
+
+import java.util.Arrays;
+
+/**
+ * Class representing a division of the surface of a {@link SkatingRink} into a grid of equally sized cells. The cells
+ * are at least as large as a given minimum size, so all positions closer to a position than this size are located in
+ * the cell of the position or in one of its adjacent cells. Adjacency follows the {@link Topology} across the edges of
+ * the surface.
+ *
+ * @author h.nunner
+ */
+public class CellGrid {
+
+	// parameters
+	private int columns;
+	private int rows;
+	private double cellWidth;
+	private double cellHeight;
+	private int[][] neighbourhoods;			// per cell: the cell itself and all adjacent cells
+
+
+	/**
+	 * Constructor - creates a new grid of cells.
+	 *
+	 * @param topology
+	 * 			the topology of the skating rink
+	 * @param minCellSize
+	 * 			the minimum size of a cell
+	 */
+	public CellGrid(Topology topology, double minCellSize) {
+		this.columns = Math.max(1, (int) Math.floor(topology.getWidth() / minCellSize));
+		this.rows = Math.max(1, (int) Math.floor(topology.getHeight() / minCellSize));
+		this.cellWidth = topology.getWidth() / this.columns;
+		this.cellHeight = topology.getHeight() / this.rows;
+		initNeighbourhoods(topology);
+	}
+
+
+	/**
+	 * Determines the neighbourhood of each cell, following the topology across the edges of the surface.
+	 *
+	 * @param topology
+	 * 			the topology of the skating rink
+	 */
+	private void initNeighbourhoods(Topology topology) {
+		this.neighbourhoods = new int[this.columns * this.rows][];
+		int[] neighbourhood = new int[9];
+		for (int column = 0; column < this.columns; column++) {
+			for (int row = 0; row < this.rows; row++) {
+				int size = 0;
+				for (int dx = -1; dx <= 1; dx++) {
+					for (int dy = -1; dy <= 1; dy++) {
+						// locate the center of the adjacent cell on the surface
+						Position center = topology.wrap((column + dx + 0.5) * this.cellWidth,
+								(row + dy + 0.5) * this.cellHeight);
+						if (center == null) {
+							continue;
+						}
+						int cell = getCell(center.getX(), center.getY());
+						boolean known = false;
+						for (int i = 0; i < size; i++) {
+							known |= neighbourhood[i] == cell;
+						}
+						if (!known) {
+							neighbourhood[size++] = cell;
+						}
+					}
+				}
+				this.neighbourhoods[column * this.rows + row] = Arrays.copyOf(neighbourhood, size);
+			}
+		}
+	}
+
+	/**
+	 * Gets the cell of a position.
+	 *
+	 * @param x
+	 * 			the x-coordinate
+	 * @param y
+	 * 			the y-coordinate
+	 * @return the index of the cell
+	 */
+	public int getCell(double x, double y) {
+		int column = Math.min(this.columns - 1, Math.max(0, (int) (x / this.cellWidth)));
+		int row = Math.min(this.rows - 1, Math.max(0, (int) (y / this.cellHeight)));
+		return column * this.rows + row;
+	}
+
+	/**
+	 * Gets the neighbourhood of a cell.
+	 *
+	 * @param cell
+	 * 			the index of the cell
+	 * @return the indices of the cell itself and all adjacent cells, each contained once
+	 */
+	public int[] getNeighbourhood(int cell) {
+		return this.neighbourhoods[cell];
+	}
+
+	/**
+	 * @return the number of cells
+	 */
+	public int getCellCount() {
+		return this.columns * this.rows;
+	}
+
+}
@@ -8,13 +8,13 @@ import java.util.List;
 
 public final class CsvWriter {
 
-	public static void generateCsvFile(String payoffsPerSkater) {
+	public static void generateCsvFile(PayoffHistory payoffHistory) {
 		try {
 			FileWriter writer = new FileWriter("skaters_"
 					+ Calendar.getInstance().getTimeInMillis() + ".csv");
 
 			writer.append("ROUND,SKATER,");
-			List<Action> actions = Action.createAvailableActions();
+			List<Action> actions = Action.getAvailableActions();
 			Iterator<Action> actionsIt = actions.iterator();
 			while (actionsIt.hasNext()) {
 				Action action = actionsIt.next();
@@ -26,7 +26,7 @@ public final class CsvWriter {
 				}
 			}
 
-			writer.append(payoffsPerSkater);
+			payoffHistory.writeCsv(writer);
 
 			// generate whatever data you want
 
@@ -37,4 +37,18 @@ public final class CsvWriter {
 		}
 	}
 
+	public static void generateReplicaCsvFile(ReplicaStatistics replicaStatistics) {
+		try {
+			FileWriter writer = new FileWriter("replicas_"
+					+ Calendar.getInstance().getTimeInMillis() + ".csv");
+
+			replicaStatistics.writeCsv(writer);
+
+			writer.flush();
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 }
@@ -0,0 +1,82 @@
+package nl.uu.mal;
+
+/**
+ * Topology of a cylinder: leaving the rectangle on the left or right side means entering it on the opposite side,
+ * whereas the top and bottom side are walls.
+ *
+ * Horizontally, distances and directions are taken to the nearest copy of the second position (minimum image).
+ * Vertically, they are measured straight within the rectangle, as no way leads across a wall.
+ *
+ * @author h.nunner
+ */
+public final class CylinderTopology extends Topology {
+
+	/**
+	 * Constructor - creates a new cylinder.
+	 *
+	 * @param width
+	 * 			the width of the rectangular surface
+	 * @param height
+	 * 			the height of the rectangular surface
+	 */
+	public CylinderTopology(double width, double height) {
+		super(width, height);
+	}
+
+	/**
+	 * Wraps a position onto the rectangle horizontally. Positions above or below the rectangle lie behind a wall.
+	 *
+	 * @param x
+	 * 			the x-coordinate, possibly outside of the surface
+	 * @param y
+	 * 			the y-coordinate, possibly outside of the surface
+	 * @return the position on the surface, or null if the position lies beyond the top or bottom side
+	 */
+	@Override
+	public Position wrap(double x, double y) {
+		if (y < 0 || y >= height) {
+			return null;
+		}
+		return new Position(wrapPeriodic(x, width), y);
+	}
+
+	/**
+	 * Gets the squared distance, taking the shorter way around horizontally and the straight way vertically.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the squared shortest distance
+	 */
+	@Override
+	public double squaredDistance(double x1, double y1, double x2, double y2) {
+		double dx = minimumImage(x2 - x1, width);
+		double dy = y2 - y1;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Gets the direction along the shortest way, which may cross the left or right side, but never the top or bottom
+	 * side.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the angle of the direction in degrees, within [-180, 180]
+	 */
+	@Override
+	public double direction(double x1, double y1, double x2, double y2) {
+		return Math.toDegrees(Math.atan2(y2 - y1, minimumImage(x2 - x1, width)));
+	}
+
+}
@@ -0,0 +1,290 @@
+package nl.uu.mal;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the state of a whole population of {@link Skater}s on the heap. Positions and payoffs are kept in
+ * pages of primitive arrays, so the number of objects does not grow with the population and skaters stored next to
+ * each other are also next to each other in memory.
+ *
+ * Pages can be shared between a store and its forks (see {@link #fork()}). A shared page is copied as soon as one of
+ * the stores writes to it, so forking costs no more than the references to the pages.
+ *
+ * @author h.nunner
+ */
+public class HeapPopulationStore extends PopulationStore {
+
+	// pages of skaters
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_SKATERS = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SKATERS - 1;
+
+	// parameters, per page
+	private double[][] positions;							// indexed by skater * 2 (+ 1 for y)
+	private int[][] cumulatedPayoffs;						// indexed by skater * ACTION_COUNT + action index
+	private double[][] meanPayoffs;							// indexed by skater * ACTION_COUNT + action index
+	private boolean[] owned;								// false if shared with another store
+
+
+	/**
+	 * Constructor - creates a new, empty population store.
+	 */
+	public HeapPopulationStore() {
+		this.positions = new double[0][];
+		this.cumulatedPayoffs = new int[0][];
+		this.meanPayoffs = new double[0][];
+		this.owned = new boolean[0];
+	}
+
+	/**
+	 * Constructor - creates a new population store sharing all pages with another store.
+	 *
+	 * @param store
+	 * 			the store to share the pages with
+	 */
+	private HeapPopulationStore(HeapPopulationStore store) {
+		this.positions = store.positions.clone();
+		this.cumulatedPayoffs = store.cumulatedPayoffs.clone();
+		this.meanPayoffs = store.meanPayoffs.clone();
+		this.owned = new boolean[store.owned.length];
+		Arrays.fill(store.owned, false);
+	}
+
+
+	/**
+	 * Creates a copy-on-write fork of the store. Both stores share all pages until either writes to them.
+	 *
+	 * @return the fork of the store
+	 */
+	@Override
+	public PopulationStore fork() {
+		return new HeapPopulationStore(this);
+	}
+
+	/**
+	 * Makes sure the store is able to hold the state of the given number of skaters, by adding empty pages.
+	 *
+	 * @param skaters
+	 * 			the number of skaters
+	 */
+	@Override
+	public void ensureCapacity(int skaters) {
+		int pageCount = (skaters + PAGE_MASK) >>> PAGE_SHIFT;
+		if (pageCount > this.owned.length) {
+			int oldPageCount = this.owned.length;
+			this.positions = Arrays.copyOf(this.positions, pageCount);
+			this.cumulatedPayoffs = Arrays.copyOf(this.cumulatedPayoffs, pageCount);
+			this.meanPayoffs = Arrays.copyOf(this.meanPayoffs, pageCount);
+			this.owned = Arrays.copyOf(this.owned, pageCount);
+			for (int i = oldPageCount; i < pageCount; i++) {
+				this.positions[i] = new double[2 * PAGE_SKATERS];
+				this.cumulatedPayoffs[i] = new int[Properties.ACTION_COUNT * PAGE_SKATERS];
+				this.meanPayoffs[i] = new double[Properties.ACTION_COUNT * PAGE_SKATERS];
+				this.owned[i] = true;
+			}
+		}
+	}
+
+	/**
+	 * Makes sure a page is not shared with another store before writing to it, by copying it if necessary.
+	 *
+	 * @param slot
+	 * 			the slot of a skater within the page
+	 * @return the index of the page
+	 */
+	private int writablePage(int slot) {
+		int page = slot >>> PAGE_SHIFT;
+		if (!this.owned[page]) {
+			this.positions[page] = this.positions[page].clone();
+			this.cumulatedPayoffs[page] = this.cumulatedPayoffs[page].clone();
+			this.meanPayoffs[page] = this.meanPayoffs[page].clone();
+			this.owned[page] = true;
+		}
+		return page;
+	}
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @return the x-coordinate of the skater
+	 */
+	@Override
+	public double getX(int slot) {
+		return this.positions[slot >>> PAGE_SHIFT][2 * (slot & PAGE_MASK)];
+	}
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @return the y-coordinate of the skater
+	 */
+	@Override
+	public double getY(int slot) {
+		return this.positions[slot >>> PAGE_SHIFT][2 * (slot & PAGE_MASK) + 1];
+	}
+
+	/**
+	 * Sets the position of a skater.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param x
+	 * 			the x-coordinate
+	 * @param y
+	 * 			the y-coordinate
+	 */
+	@Override
+	public void setPosition(int slot, double x, double y) {
+		double[] page = this.positions[writablePage(slot)];
+		page[2 * (slot & PAGE_MASK)] = x;
+		page[2 * (slot & PAGE_MASK) + 1] = y;
+	}
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the cumulated payoff of the action
+	 */
+	@Override
+	public int getCumulatedPayoff(int slot, int actionIndex) {
+		return this.cumulatedPayoffs[slot >>> PAGE_SHIFT][(slot & PAGE_MASK) * Properties.ACTION_COUNT + actionIndex];
+	}
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @param cumulatedPayoff
+	 * 			the cumulated payoff of the action to set
+	 */
+	@Override
+	public void setCumulatedPayoff(int slot, int actionIndex, int cumulatedPayoff) {
+		this.cumulatedPayoffs[writablePage(slot)][(slot & PAGE_MASK) * Properties.ACTION_COUNT + actionIndex]
+				= cumulatedPayoff;
+	}
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean payoff of the action
+	 */
+	@Override
+	public double getMeanPayoff(int slot, int actionIndex) {
+		return this.meanPayoffs[slot >>> PAGE_SHIFT][(slot & PAGE_MASK) * Properties.ACTION_COUNT + actionIndex];
+	}
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @param meanPayoff
+	 * 			the mean payoff of the action to set
+	 */
+	@Override
+	public void setMeanPayoff(int slot, int actionIndex, double meanPayoff) {
+		this.meanPayoffs[writablePage(slot)][(slot & PAGE_MASK) * Properties.ACTION_COUNT + actionIndex] = meanPayoff;
+	}
+
+	/**
+	 * Moves the state of the skaters to other slots of the store. The slots are permuted in place, cycle by cycle, so
+	 * only the state of two skaters is buffered at a time.
+	 *
+	 * @param slots
+	 * 			the new slot per current slot, for all skaters of the population
+	 */
+	@Override
+	public void permute(int[] slots) {
+		double[] carriedPosition = new double[2];
+		double[] displacedPosition = new double[2];
+		int[] carriedCumulated = new int[Properties.ACTION_COUNT];
+		int[] displacedCumulated = new int[Properties.ACTION_COUNT];
+		double[] carriedMean = new double[Properties.ACTION_COUNT];
+		double[] displacedMean = new double[Properties.ACTION_COUNT];
+		boolean[] done = new boolean[slots.length];
+		for (int start = 0; start < slots.length; start++) {
+			if (done[start]) {
+				continue;
+			}
+			// carry the state along the cycle, until it returns to its start
+			read(start, carriedPosition, carriedCumulated, carriedMean);
+			int current = start;
+			while (!done[current]) {
+				done[current] = true;
+				int next = slots[current];
+				read(next, displacedPosition, displacedCumulated, displacedMean);
+				write(next, carriedPosition, carriedCumulated, carriedMean);
+				double[] swapPosition = carriedPosition;
+				carriedPosition = displacedPosition;
+				displacedPosition = swapPosition;
+				int[] swapCumulated = carriedCumulated;
+				carriedCumulated = displacedCumulated;
+				displacedCumulated = swapCumulated;
+				double[] swapMean = carriedMean;
+				carriedMean = displacedMean;
+				displacedMean = swapMean;
+				current = next;
+			}
+		}
+	}
+
+	/**
+	 * Copies the state of a skater into buffers.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param position
+	 * 			the buffer for the position
+	 * @param cumulated
+	 * 			the buffer for the cumulated payoffs
+	 * @param mean
+	 * 			the buffer for the mean payoffs
+	 */
+	private void read(int slot, double[] position, int[] cumulated, double[] mean) {
+		int page = slot >>> PAGE_SHIFT;
+		int offset = slot & PAGE_MASK;
+		System.arraycopy(this.positions[page], 2 * offset, position, 0, 2);
+		System.arraycopy(this.cumulatedPayoffs[page], offset * Properties.ACTION_COUNT, cumulated, 0,
+				Properties.ACTION_COUNT);
+		System.arraycopy(this.meanPayoffs[page], offset * Properties.ACTION_COUNT, mean, 0, Properties.ACTION_COUNT);
+	}
+
+	/**
+	 * Copies the state of a skater from buffers.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param position
+	 * 			the buffer for the position
+	 * @param cumulated
+	 * 			the buffer for the cumulated payoffs
+	 * @param mean
+	 * 			the buffer for the mean payoffs
+	 */
+	private void write(int slot, double[] position, int[] cumulated, double[] mean) {
+		int page = writablePage(slot);
+		int offset = slot & PAGE_MASK;
+		System.arraycopy(position, 0, this.positions[page], 2 * offset, 2);
+		System.arraycopy(cumulated, 0, this.cumulatedPayoffs[page], offset * Properties.ACTION_COUNT,
+				Properties.ACTION_COUNT);
+		System.arraycopy(mean, 0, this.meanPayoffs[page], offset * Properties.ACTION_COUNT, Properties.ACTION_COUNT);
+	}
+
+	/**
+	 * Releases the pages of the store. Pages shared with forks remain referenced by the forks, so forks remain usable.
+	 * The store must not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		this.positions = new double[0][];
+		this.cumulatedPayoffs = new int[0][];
+		this.meanPayoffs = new double[0][];
+		this.owned = new boolean[0];
+	}
+
+}
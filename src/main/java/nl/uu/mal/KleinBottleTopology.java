@@ -0,0 +1,97 @@
+package nl.uu.mal;
+
+/**
+ * Topology of a Klein bottle: leaving the rectangle on the left or right side means entering it on the opposite side,
+ * whereas leaving it on the top or bottom side means entering it on the opposite side, mirrored horizontally.
+ *
+ * The copies of a position (x, y) on the plane are therefore (x + i * w, y + 2 * j * h) and the mirrored copies
+ * (w - x + i * w, y + (2 * j + 1) * h). The shortest distance is the smaller one of the nearest regular and the nearest
+ * mirrored copy.
+ *
+ * @author h.nunner
+ */
+public final class KleinBottleTopology extends Topology {
+
+	/**
+	 * Constructor - creates a new Klein bottle.
+	 *
+	 * @param width
+	 * 			the width of the rectangular surface
+	 * @param height
+	 * 			the height of the rectangular surface
+	 */
+	public KleinBottleTopology(double width, double height) {
+		super(width, height);
+	}
+
+	/**
+	 * Wraps a position onto the rectangle. Every turn across the top or bottom side mirrors the x-coordinate, so an odd
+	 * number of turns leaves the position mirrored.
+	 *
+	 * @param x
+	 * 			the x-coordinate, possibly outside of the surface
+	 * @param y
+	 * 			the y-coordinate, possibly outside of the surface
+	 * @return the position on the surface, never null
+	 */
+	@Override
+	public Position wrap(double x, double y) {
+		double turns = Math.floor(y / height);
+		// mirror horizontally for an odd number of turns
+		double mirror = turns - 2 * Math.floor(turns / 2);
+		double mirroredX = x + mirror * (width - 2 * x);
+		return new Position(wrapPeriodic(mirroredX, width), y - turns * height);
+	}
+
+	/**
+	 * Gets the squared distance to the nearer one of the nearest regular and the nearest mirrored copy of the second
+	 * position.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the squared shortest distance
+	 */
+	@Override
+	public double squaredDistance(double x1, double y1, double x2, double y2) {
+		// nearest regular copy
+		double dx = minimumImage(x2 - x1, width);
+		double dy = minimumImage(y2 - y1, 2 * height);
+		// nearest mirrored copy
+		double mdx = minimumImage(width - x2 - x1, width);
+		double mdy = minimumImage(y2 + height - y1, 2 * height);
+		return Math.min(dx * dx + dy * dy, mdx * mdx + mdy * mdy);
+	}
+
+	/**
+	 * Gets the direction to the same copy of the second position as {@link #squaredDistance(double, double, double,
+	 * double)}, the regular one unless the mirrored one is strictly nearer.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the angle of the direction in degrees, within [-180, 180]
+	 */
+	@Override
+	public double direction(double x1, double y1, double x2, double y2) {
+		double dx = minimumImage(x2 - x1, width);
+		double dy = minimumImage(y2 - y1, 2 * height);
+		double mdx = minimumImage(width - x2 - x1, width);
+		double mdy = minimumImage(y2 + height - y1, 2 * height);
+		if (mdx * mdx + mdy * mdy < dx * dx + dy * dy) {
+			return Math.toDegrees(Math.atan2(mdy, mdx));
+		}
+		return Math.toDegrees(Math.atan2(dy, dx));
+	}
+
+}
@@ -0,0 +1,335 @@
+package nl.uu.mal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing the state of a whole population of {@link Skater}s outside of the Java heap: the position and the
+ * payoffs of all {@link Action}s per skater. The state is kept in chunks of direct memory or, if a directory is given,
+ * in chunks of a temporary, memory-mapped file. Skaters hold no state objects of their own, but read and write their
+ * state through the store, so the heap and the work of the garbage collector do not grow with the population.
+ *
+ * Chunks can be shared between a store and its forks (see {@link #fork()}). A shared chunk is copied into a new chunk
+ * as soon as one of the stores writes to it, so forking costs no more than the references to the chunks. New chunks
+ * are of the same kind as the ones of the store: direct memory, or the next free region of the file of the store.
+ * Regions of a file are never reused, as a fork may still map them, so the file of a store grows by one chunk for
+ * every chunk copied after a fork.
+ *
+ * @author h.nunner
+ */
+public class OffHeapPopulationStore extends PopulationStore {
+
+	// layout of a single skater: x, y, cumulated payoffs per action, mean payoffs per action
+	private static final int X = 0;
+	private static final int Y = 8;
+	private static final int CUMULATED_PAYOFFS = 16;
+	private static final int MEAN_PAYOFFS = CUMULATED_PAYOFFS + 4 * Properties.ACTION_COUNT;
+	private static final int SKATER_BYTES = MEAN_PAYOFFS + 8 * Properties.ACTION_COUNT;
+
+	// chunks of skaters, each chunk being a single buffer
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SKATERS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SKATERS - 1;
+	private static final int CHUNK_BYTES = CHUNK_SKATERS * SKATER_BYTES;
+
+	// parameters
+	private File directory;
+	private File file;
+	private FileChannel channel;
+	private long mappedBytes;								// size of all regions of the file mapped so far
+	private List<ByteBuffer> chunks;
+	private List<Boolean> owned;							// per chunk: false if shared with another store
+
+
+	/**
+	 * Constructor - creates a new, empty population store.
+	 *
+	 * @param directory
+	 * 			the directory to create the memory-mapped file of the store in, or null to use direct memory
+	 */
+	public OffHeapPopulationStore(File directory) {
+		this.directory = directory;
+		this.chunks = new ArrayList<ByteBuffer>();
+		this.owned = new ArrayList<Boolean>();
+		if (directory != null) {
+			try {
+				this.file = File.createTempFile("population_", ".bin", directory);
+				this.file.deleteOnExit();
+				this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to create population store in " + directory, e);
+			}
+		}
+	}
+
+
+	/**
+	 * Makes sure the store is able to hold the state of the given number of skaters.
+	 *
+	 * @param skaters
+	 * 			the number of skaters
+	 */
+	@Override
+	public void ensureCapacity(int skaters) {
+		while (this.chunks.size() * (long) CHUNK_SKATERS < skaters) {
+			this.chunks.add(allocateChunk());
+			this.owned.add(Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Allocates a new, empty chunk: direct memory, or the next free region of the file of the store.
+	 *
+	 * @return the chunk
+	 */
+	private ByteBuffer allocateChunk() {
+		ByteBuffer chunk;
+		if (this.channel == null) {
+			chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+		} else {
+			try {
+				chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.mappedBytes, CHUNK_BYTES);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to map population store", e);
+			}
+			this.mappedBytes += CHUNK_BYTES;
+		}
+		return chunk.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Creates a copy-on-write fork of the store. Both stores share all chunks until either writes to them. A fork of a
+	 * memory-mapped store gets a file of its own in the same directory, for the chunks it copies or adds.
+	 *
+	 * @return the fork of the store
+	 */
+	@Override
+	public OffHeapPopulationStore fork() {
+		OffHeapPopulationStore fork = new OffHeapPopulationStore(this.directory);
+		fork.chunks.addAll(this.chunks);
+		for (int i = 0; i < this.owned.size(); i++) {
+			this.owned.set(i, Boolean.FALSE);
+			fork.owned.add(Boolean.FALSE);
+		}
+		return fork;
+	}
+
+	/**
+	 * Gets the chunk containing the state of a skater.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the chunk
+	 */
+	private ByteBuffer chunk(int skaterIndex) {
+		return this.chunks.get(skaterIndex >>> CHUNK_SHIFT);
+	}
+
+	/**
+	 * Gets the chunk containing the state of a skater for writing, copying the chunk into a new chunk first if it is
+	 * shared.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the chunk
+	 */
+	private ByteBuffer writableChunk(int skaterIndex) {
+		int chunkIndex = skaterIndex >>> CHUNK_SHIFT;
+		if (!this.owned.get(chunkIndex)) {
+			ByteBuffer shared = this.chunks.get(chunkIndex).duplicate();
+			shared.clear();
+			ByteBuffer copy = allocateChunk();
+			copy.duplicate().put(shared);
+			this.chunks.set(chunkIndex, copy);
+			this.owned.set(chunkIndex, Boolean.TRUE);
+		}
+		return this.chunks.get(chunkIndex);
+	}
+
+	/**
+	 * Gets the offset of the state of a skater within its chunk.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the offset in bytes
+	 */
+	private static int offset(int skaterIndex) {
+		return (skaterIndex & CHUNK_MASK) * SKATER_BYTES;
+	}
+
+	/**
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the x-coordinate of the skater
+	 */
+	@Override
+	public double getX(int skaterIndex) {
+		return chunk(skaterIndex).getDouble(offset(skaterIndex) + X);
+	}
+
+	/**
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the y-coordinate of the skater
+	 */
+	@Override
+	public double getY(int skaterIndex) {
+		return chunk(skaterIndex).getDouble(offset(skaterIndex) + Y);
+	}
+
+	/**
+	 * Sets the position of a skater.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param x
+	 * 			the x-coordinate
+	 * @param y
+	 * 			the y-coordinate
+	 */
+	@Override
+	public void setPosition(int skaterIndex, double x, double y) {
+		ByteBuffer chunk = writableChunk(skaterIndex);
+		int offset = offset(skaterIndex);
+		chunk.putDouble(offset + X, x);
+		chunk.putDouble(offset + Y, y);
+	}
+
+	/**
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the cumulated payoff of the action
+	 */
+	@Override
+	public int getCumulatedPayoff(int skaterIndex, int actionIndex) {
+		return chunk(skaterIndex).getInt(offset(skaterIndex) + CUMULATED_PAYOFFS + 4 * actionIndex);
+	}
+
+	/**
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @param cumulatedPayoff
+	 * 			the cumulated payoff of the action to set
+	 */
+	@Override
+	public void setCumulatedPayoff(int skaterIndex, int actionIndex, int cumulatedPayoff) {
+		writableChunk(skaterIndex).putInt(offset(skaterIndex) + CUMULATED_PAYOFFS + 4 * actionIndex, cumulatedPayoff);
+	}
+
+	/**
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean payoff of the action
+	 */
+	@Override
+	public double getMeanPayoff(int skaterIndex, int actionIndex) {
+		return chunk(skaterIndex).getDouble(offset(skaterIndex) + MEAN_PAYOFFS + 8 * actionIndex);
+	}
+
+	/**
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @param meanPayoff
+	 * 			the mean payoff of the action to set
+	 */
+	@Override
+	public void setMeanPayoff(int skaterIndex, int actionIndex, double meanPayoff) {
+		writableChunk(skaterIndex).putDouble(offset(skaterIndex) + MEAN_PAYOFFS + 8 * actionIndex, meanPayoff);
+	}
+
+	/**
+	 * Moves the state of the skaters to other rows of the store. The rows are permuted in place, cycle by cycle, so
+	 * only the state of two skaters is buffered on the heap at a time.
+	 *
+	 * @param slots
+	 * 			the new row per current row, for all skaters of the population
+	 */
+	@Override
+	public void permute(int[] slots) {
+		byte[] carried = new byte[SKATER_BYTES];
+		byte[] displaced = new byte[SKATER_BYTES];
+		boolean[] done = new boolean[slots.length];
+		for (int start = 0; start < slots.length; start++) {
+			if (done[start]) {
+				continue;
+			}
+			// carry the state along the cycle, until it returns to its start
+			read(start, carried);
+			int current = start;
+			while (!done[current]) {
+				done[current] = true;
+				int next = slots[current];
+				read(next, displaced);
+				write(next, carried);
+				byte[] swap = carried;
+				carried = displaced;
+				displaced = swap;
+				current = next;
+			}
+		}
+	}
+
+	/**
+	 * Copies the state of a skater into a buffer.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param bytes
+	 * 			the buffer to copy to
+	 */
+	private void read(int skaterIndex, byte[] bytes) {
+		ByteBuffer chunk = chunk(skaterIndex).duplicate();
+		chunk.position(offset(skaterIndex));
+		chunk.get(bytes);
+	}
+
+	/**
+	 * Copies the state of a skater from a buffer.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param bytes
+	 * 			the buffer to copy from
+	 */
+	private void write(int skaterIndex, byte[] bytes) {
+		ByteBuffer chunk = writableChunk(skaterIndex).duplicate();
+		chunk.position(offset(skaterIndex));
+		chunk.put(bytes);
+	}
+
+	/**
+	 * Releases the file backing the store, if any. Direct and mapped memory is released by the garbage collector, as
+	 * soon as the store and its forks are no longer referenced, so forks remain usable. The store must not be used
+	 * afterwards.
+	 */
+	@Override
+	public void close() {
+		if (this.channel != null) {
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			this.file.delete();
+			this.channel = null;
+		}
+		this.chunks.clear();
+		this.owned.clear();
+	}
+
+}
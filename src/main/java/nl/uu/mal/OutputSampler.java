@@ -0,0 +1,146 @@
+package nl.uu.mal;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the rules which simulation rounds and skaters are recorded in the outputs of a
+ * {@link SkatingRink}. The rules are checked before any formatting or aggregation, so the work spent on outputs scales
+ * with what is kept rather than with the number of skaters times the number of rounds.
+ *
+ * Rounds are recorded at a fixed stride (the last round is always included), or only the last round is recorded.
+ * Skaters are recorded if they belong to a fixed subset, chosen by seed, and optionally only if their payoffs changed
+ * since they were last recorded.
+ *
+ * @author h.nunner
+ */
+public class OutputSampler {
+
+	// parameters
+	private int roundStride;
+	private boolean lastRoundOnly;
+	private double skaterFraction;
+	private long seed;
+	private boolean changesOnly;
+
+	// last recorded payoffs per skater (changes only), indexed by skater index * ACTION_COUNT + action index
+	private int[] lastPayoffs;
+	private boolean[] recorded;
+
+
+	/**
+	 * Constructor - creates a new output sampler.
+	 *
+	 * @param roundStride
+	 * 			record every n-th round
+	 * @param lastRoundOnly
+	 * 			record the last round only
+	 * @param skaterFraction
+	 * 			the fraction of skaters to record
+	 * @param seed
+	 * 			the seed for choosing the skaters to record
+	 * @param changesOnly
+	 * 			record skaters only if their payoffs changed
+	 */
+	public OutputSampler(int roundStride, boolean lastRoundOnly, double skaterFraction, long seed, boolean changesOnly) {
+		if (roundStride < 1) {
+			throw new IllegalArgumentException("Invalid round stride: " + roundStride);
+		}
+		this.roundStride = roundStride;
+		this.lastRoundOnly = lastRoundOnly;
+		this.skaterFraction = skaterFraction;
+		this.seed = seed;
+		this.changesOnly = changesOnly;
+		this.lastPayoffs = new int[0];
+		this.recorded = new boolean[0];
+	}
+
+	/**
+	 * Creates an output sampler based on the parameters in {@link Properties}.
+	 *
+	 * @return the output sampler
+	 */
+	public static OutputSampler createDefault() {
+		return new OutputSampler(Properties.SAMPLE_ROUND_STRIDE, Properties.SAMPLE_LAST_ROUND_ONLY,
+				Properties.SAMPLE_SKATER_FRACTION, Properties.SAMPLE_SEED, Properties.SAMPLE_CHANGES_ONLY);
+	}
+
+
+	/**
+	 * Creates an output sampler with the same rules, but without any payoffs recorded so far, e.g. for an output that
+	 * starts empty. Thus the first payoffs of each skater are recorded, even if only changes are recorded.
+	 *
+	 * @return the new output sampler
+	 */
+	public OutputSampler copyRules() {
+		return new OutputSampler(this.roundStride, this.lastRoundOnly, this.skaterFraction, this.seed, this.changesOnly);
+	}
+
+	/**
+	 * Checks whether a simulation round is recorded. The last round is always recorded. For a simulation split into
+	 * several runs, this is the last round of the whole simulation (see {@link SkatingRink#setPlannedRounds(int)}),
+	 * otherwise the last round of each run is recorded as well.
+	 *
+	 * @param simRound
+	 * 			the simulation round
+	 * @param lastRound
+	 * 			the last simulation round
+	 * @return true if the round is recorded, false otherwise
+	 */
+	public boolean isRoundSampled(int simRound, int lastRound) {
+		if (simRound == lastRound) {
+			return true;
+		}
+		return !this.lastRoundOnly && simRound % this.roundStride == 0;
+	}
+
+	/**
+	 * Checks whether a skater belongs to the recorded subset. The decision only depends on the seed and the skater
+	 * index, so the subset stays the same over all rounds and does not need to be stored.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return true if the skater is recorded, false otherwise
+	 */
+	public boolean isSkaterSampled(int skaterIndex) {
+		if (this.skaterFraction >= 1.0) {
+			return true;
+		}
+		// mix seed and index (SplitMix64) into a uniformly distributed value within [0, 1)
+		long z = this.seed + (skaterIndex + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (z >>> 11) * 0x1.0p-53 < this.skaterFraction;
+	}
+
+	/**
+	 * Checks whether the payoffs of a skater are recorded. If only changes are recorded, the payoffs are compared to
+	 * the ones recorded last and remembered for the next comparison.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param payoffs
+	 * 			the cumulated payoffs of the skater, ordered by angle
+	 * @return true if the payoffs are recorded, false otherwise
+	 */
+	public boolean isChangeSampled(int skaterIndex, int[] payoffs) {
+		if (!this.changesOnly) {
+			return true;
+		}
+		if (skaterIndex >= this.recorded.length) {
+			int capacity = Math.max(skaterIndex + 1, 2 * this.recorded.length);
+			this.recorded = Arrays.copyOf(this.recorded, capacity);
+			this.lastPayoffs = Arrays.copyOf(this.lastPayoffs, capacity * Properties.ACTION_COUNT);
+		}
+
+		int offset = skaterIndex * Properties.ACTION_COUNT;
+		boolean changed = !this.recorded[skaterIndex];
+		for (int i = 0; i < Properties.ACTION_COUNT; i++) {
+			changed |= this.lastPayoffs[offset + i] != payoffs[i];
+			this.lastPayoffs[offset + i] = payoffs[i];
+		}
+		this.recorded[skaterIndex] = true;
+		return changed;
+	}
+
+}
@@ -0,0 +1,468 @@
+package nl.uu.mal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Class representing the history of cumulated payoffs per {@link Skater} over time. Records are stored as rows of
+ * primitive ints within fixed-size blocks, each row consisting of the simulation round, the skater index and the
+ * cumulated payoffs per angle (ordered by angle). Formatting as text only happens on export.
+ *
+ * The history either retains (at least) the last k rounds in memory, recycling blocks as in a ring buffer, or it
+ * retains the full history by spilling completed blocks to a temporary file on disk. Records are expected to be added
+ * in the order of simulation rounds. Spilled blocks are indexed by their range of rounds and skaters, so queries only
+ * read back the blocks that may contain matching records.
+ *
+ * @author h.nunner
+ */
+public class PayoffHistory {
+
+	// layout of a single record
+	public static final int ROUND = 0;
+	public static final int SKATER = 1;
+	public static final int PAYOFFS = 2;
+	public static final int RECORD_WIDTH = PAYOFFS + Properties.ACTION_COUNT;
+
+	// parameters
+	private int retainedRounds;					// 0 = full history
+	private int blockRecords;
+
+	// blocks held in memory, oldest first, and the block currently being filled
+	private Deque<int[]> blocks;
+	private Deque<int[]> freeBlocks;
+	private int[] currentBlock;
+	private int currentRecords;
+	private int latestRound;
+
+	// blocks spilled to disk (full history only)
+	private File spillFile;
+	private FileChannel spillChannel;
+	private int spilledBlocks;
+	private int[] spilledFirstRounds;			// per spilled block: the round of the first record
+	private int[] spilledLastRounds;			// per spilled block: the round of the last record
+	private int[] spilledMinSkaters;			// per spilled block: the lowest skater index
+	private int[] spilledMaxSkaters;			// per spilled block: the highest skater index
+
+
+	/**
+	 * Constructor - creates a new payoff history.
+	 *
+	 * @param retainedRounds
+	 * 			the number of most recent rounds to retain, 0 to retain the full history
+	 * @param blockRecords
+	 * 			the number of records per block
+	 */
+	public PayoffHistory(int retainedRounds, int blockRecords) {
+		if (retainedRounds < 0 || blockRecords < 1) {
+			throw new IllegalArgumentException("Invalid retention (" + retainedRounds + ") or block size ("
+					+ blockRecords + ")");
+		}
+		this.retainedRounds = retainedRounds;
+		this.blockRecords = blockRecords;
+		this.blocks = new ArrayDeque<int[]>();
+		this.freeBlocks = new ArrayDeque<int[]>();
+		this.currentBlock = new int[blockRecords * RECORD_WIDTH];
+		this.currentRecords = 0;
+		this.latestRound = 0;
+		this.spilledBlocks = 0;
+		this.spilledFirstRounds = new int[0];
+		this.spilledLastRounds = new int[0];
+		this.spilledMinSkaters = new int[0];
+		this.spilledMaxSkaters = new int[0];
+	}
+
+
+	/**
+	 * Adds a record to the history.
+	 *
+	 * @param simRound
+	 * 			the simulation round
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param payoffs
+	 * 			the cumulated payoffs of the skater, ordered by angle
+	 */
+	public void record(int simRound, int skaterIndex, int[] payoffs) {
+		if (this.currentRecords == this.blockRecords) {
+			completeCurrentBlock();
+		}
+		int offset = this.currentRecords * RECORD_WIDTH;
+		this.currentBlock[offset + ROUND] = simRound;
+		this.currentBlock[offset + SKATER] = skaterIndex;
+		System.arraycopy(payoffs, 0, this.currentBlock, offset + PAYOFFS, Properties.ACTION_COUNT);
+		this.currentRecords++;
+
+		if (simRound > this.latestRound) {
+			this.latestRound = simRound;
+			evictBlocks();
+		}
+	}
+
+	/**
+	 * Stores the full current block, either in memory or on disk, and starts a new one.
+	 */
+	private void completeCurrentBlock() {
+		if (this.retainedRounds == 0) {
+			spillBlock(this.currentBlock);
+		} else {
+			this.blocks.addLast(this.currentBlock);
+			this.currentBlock = this.freeBlocks.isEmpty() ? new int[this.blockRecords * RECORD_WIDTH]
+					: this.freeBlocks.removeFirst();
+		}
+		this.currentRecords = 0;
+	}
+
+	/**
+	 * Recycles all blocks in memory containing only rounds that are no longer retained.
+	 */
+	private void evictBlocks() {
+		if (this.retainedRounds == 0) {
+			return;
+		}
+		int firstRetainedRound = this.latestRound - this.retainedRounds + 1;
+		int lastRecordOffset = (this.blockRecords - 1) * RECORD_WIDTH;
+		while (!this.blocks.isEmpty() && this.blocks.peekFirst()[lastRecordOffset + ROUND] < firstRetainedRound) {
+			this.freeBlocks.addLast(this.blocks.removeFirst());
+		}
+	}
+
+	/**
+	 * Appends a full block to the spill file.
+	 *
+	 * @param block
+	 * 			the block to spill
+	 */
+	private void spillBlock(int[] block) {
+		try {
+			if (this.spillChannel == null) {
+				this.spillFile = File.createTempFile("payoffs_", ".bin");
+				this.spillFile.deleteOnExit();
+				this.spillChannel = new RandomAccessFile(this.spillFile, "rw").getChannel();
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(block.length * 4);
+			buffer.asIntBuffer().put(block);
+			long position = (long) this.spilledBlocks * block.length * 4;
+			while (buffer.hasRemaining()) {
+				position += this.spillChannel.write(buffer, position);
+			}
+			indexSpilledBlock(block);
+			this.spilledBlocks++;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to spill payoff history to disk", e);
+		}
+	}
+
+	/**
+	 * Adds the range of rounds and skaters of the block spilled last to the index of spilled blocks.
+	 *
+	 * @param block
+	 * 			the spilled block
+	 */
+	private void indexSpilledBlock(int[] block) {
+		int index = this.spilledBlocks;
+		if (index == this.spilledFirstRounds.length) {
+			int length = Math.max(16, 2 * index);
+			this.spilledFirstRounds = Arrays.copyOf(this.spilledFirstRounds, length);
+			this.spilledLastRounds = Arrays.copyOf(this.spilledLastRounds, length);
+			this.spilledMinSkaters = Arrays.copyOf(this.spilledMinSkaters, length);
+			this.spilledMaxSkaters = Arrays.copyOf(this.spilledMaxSkaters, length);
+		}
+		int minSkater = Integer.MAX_VALUE;
+		int maxSkater = Integer.MIN_VALUE;
+		for (int offset = 0; offset < block.length; offset += RECORD_WIDTH) {
+			minSkater = Math.min(minSkater, block[offset + SKATER]);
+			maxSkater = Math.max(maxSkater, block[offset + SKATER]);
+		}
+		this.spilledFirstRounds[index] = block[ROUND];
+		this.spilledLastRounds[index] = block[block.length - RECORD_WIDTH + ROUND];
+		this.spilledMinSkaters[index] = minSkater;
+		this.spilledMaxSkaters[index] = maxSkater;
+	}
+
+	/**
+	 * Finds the first spilled block whose round in the given index is at least the given round. As records are added
+	 * in the order of simulation rounds, the rounds in both indices increase with the blocks.
+	 *
+	 * @param rounds
+	 * 			the index of first or last rounds of the spilled blocks
+	 * @param simRound
+	 * 			the simulation round
+	 * @return the index of the block, or the number of spilled blocks if there is none
+	 */
+	private int searchSpilledBlocks(int[] rounds, int simRound) {
+		int low = 0;
+		int high = this.spilledBlocks;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (rounds[middle] < simRound) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Reads a spilled block back from disk.
+	 *
+	 * @param index
+	 * 			the index of the spilled block
+	 * @param block
+	 * 			the array to read the block into
+	 */
+	private void readSpilledBlock(int index, int[] block) {
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(block.length * 4);
+			long position = (long) index * block.length * 4;
+			while (buffer.hasRemaining()) {
+				int read = this.spillChannel.read(buffer, position);
+				if (read < 0) {
+					throw new IOException("Unexpected end of spill file");
+				}
+				position += read;
+			}
+			buffer.flip();
+			IntBuffer ints = buffer.asIntBuffer();
+			ints.get(block);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read payoff history from disk", e);
+		}
+	}
+
+	/**
+	 * Gets all retained blocks in chronological order, including the block currently being filled. Spilled blocks are
+	 * read back from disk.
+	 *
+	 * @return iterator over all retained blocks
+	 */
+	private Iterator<int[]> blockIterator() {
+		final int totalSpilled = this.spilledBlocks;
+		final Iterator<int[]> memoryIt = this.blocks.iterator();
+		return new Iterator<int[]>() {
+			private int spilled = 0;
+			private boolean current = false;
+			private int[] buffer;
+
+			public boolean hasNext() {
+				return spilled < totalSpilled || memoryIt.hasNext() || !current;
+			}
+
+			public int[] next() {
+				if (spilled < totalSpilled) {
+					if (buffer == null) {
+						buffer = new int[blockRecords * RECORD_WIDTH];
+					}
+					readSpilledBlock(spilled++, buffer);
+					return buffer;
+				}
+				if (memoryIt.hasNext()) {
+					return memoryIt.next();
+				}
+				current = true;
+				return currentBlock;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Gets all retained records matching the given round and/or skater. The matches are counted first, so that the
+	 * result is allocated only once. Spilled blocks outside the range of the round or skater are not read at all.
+	 *
+	 * @param simRound
+	 * 			the simulation round, or -1 for all rounds
+	 * @param skaterIndex
+	 * 			the skater index, or -1 for all skaters
+	 * @return the matching records, concatenated into a single array of {@link #RECORD_WIDTH} ints per record
+	 */
+	private int[] select(int simRound, int skaterIndex) {
+		// spilled blocks that may contain the round
+		int from = 0;
+		int to = this.spilledBlocks;
+		if (simRound >= 0) {
+			from = searchSpilledBlocks(this.spilledLastRounds, simRound);
+			to = Math.max(from, searchSpilledBlocks(this.spilledFirstRounds, simRound + 1));
+		}
+
+		// count the matches
+		int[] spilledMatches = new int[to - from];
+		int[] buffer = null;
+		int matches = 0;
+		for (int i = from; i < to; i++) {
+			if (skaterIndex < 0
+					|| (skaterIndex >= this.spilledMinSkaters[i] && skaterIndex <= this.spilledMaxSkaters[i])) {
+				if (buffer == null) {
+					buffer = new int[this.blockRecords * RECORD_WIDTH];
+				}
+				readSpilledBlock(i, buffer);
+				spilledMatches[i - from] = collect(buffer, this.blockRecords, simRound, skaterIndex, null, 0);
+				matches += spilledMatches[i - from];
+			}
+		}
+		Iterator<int[]> blocksIt = this.blocks.iterator();
+		while (blocksIt.hasNext()) {
+			matches += collect(blocksIt.next(), this.blockRecords, simRound, skaterIndex, null, 0);
+		}
+		matches += collect(this.currentBlock, this.currentRecords, simRound, skaterIndex, null, 0);
+
+		// copy the matches, reading back only spilled blocks containing any
+		int[] result = new int[matches * RECORD_WIDTH];
+		int position = 0;
+		for (int i = from; i < to; i++) {
+			if (spilledMatches[i - from] > 0) {
+				readSpilledBlock(i, buffer);
+				position = collect(buffer, this.blockRecords, simRound, skaterIndex, result, position);
+			}
+		}
+		blocksIt = this.blocks.iterator();
+		while (blocksIt.hasNext()) {
+			position = collect(blocksIt.next(), this.blockRecords, simRound, skaterIndex, result, position);
+		}
+		collect(this.currentBlock, this.currentRecords, simRound, skaterIndex, result, position);
+		return result;
+	}
+
+	/**
+	 * Counts or copies the records of a block matching the given round and/or skater. Blocks not containing the round
+	 * are skipped without looking at their records.
+	 *
+	 * @param block
+	 * 			the block
+	 * @param records
+	 * 			the number of records in the block
+	 * @param simRound
+	 * 			the simulation round, or -1 for all rounds
+	 * @param skaterIndex
+	 * 			the skater index, or -1 for all skaters
+	 * @param result
+	 * 			the array to copy the matching records to, or null to count them only
+	 * @param position
+	 * 			the number of records in the result so far
+	 * @return the number of records in the result after the matching records of the block, or the number of matching
+	 * 			records of the block if counting only
+	 */
+	private static int collect(int[] block, int records, int simRound, int skaterIndex, int[] result, int position) {
+		int end = records * RECORD_WIDTH;
+		if (records == 0
+				|| (simRound >= 0 && (block[ROUND] > simRound || block[end - RECORD_WIDTH + ROUND] < simRound))) {
+			return position;
+		}
+		for (int offset = 0; offset < end; offset += RECORD_WIDTH) {
+			if ((simRound < 0 || block[offset + ROUND] == simRound)
+					&& (skaterIndex < 0 || block[offset + SKATER] == skaterIndex)) {
+				if (result != null) {
+					System.arraycopy(block, offset, result, position * RECORD_WIDTH, RECORD_WIDTH);
+				}
+				position++;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Gets the retained records of a single simulation round.
+	 *
+	 * @param simRound
+	 * 			the simulation round
+	 * @return the records, concatenated into a single array of {@link #RECORD_WIDTH} ints per record
+	 */
+	public int[] getRound(int simRound) {
+		return select(simRound, -1);
+	}
+
+	/**
+	 * Gets the retained records of a single skater.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the records, concatenated into a single array of {@link #RECORD_WIDTH} ints per record
+	 */
+	public int[] getSkater(int skaterIndex) {
+		return select(-1, skaterIndex);
+	}
+
+	/**
+	 * Gets the cumulated payoffs of a skater in a given simulation round.
+	 *
+	 * @param simRound
+	 * 			the simulation round
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the cumulated payoffs ordered by angle, or null if no such record is retained
+	 */
+	public int[] getPayoffs(int simRound, int skaterIndex) {
+		int[] records = select(simRound, skaterIndex);
+		if (records.length == 0) {
+			return null;
+		}
+		int[] payoffs = new int[Properties.ACTION_COUNT];
+		System.arraycopy(records, PAYOFFS, payoffs, 0, Properties.ACTION_COUNT);
+		return payoffs;
+	}
+
+	/**
+	 * Writes all retained records as comma separated values, one record per line.
+	 *
+	 * @param writer
+	 * 			the writer to write to
+	 * @throws IOException
+	 * 			if writing fails
+	 */
+	public void writeCsv(Writer writer) throws IOException {
+		Iterator<int[]> blocksIt = blockIterator();
+		while (blocksIt.hasNext()) {
+			int[] block = blocksIt.next();
+			int records = blocksIt.hasNext() ? this.blockRecords : this.currentRecords;
+			for (int offset = 0; offset < records * RECORD_WIDTH; offset += RECORD_WIDTH) {
+				for (int i = 0; i < RECORD_WIDTH; i++) {
+					writer.write(String.valueOf(block[offset + i]));
+					writer.write(i < RECORD_WIDTH - 1 ? "," : "\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases the spill file, if any. The history must not be used afterwards.
+	 */
+	public void close() {
+		if (this.spillChannel != null) {
+			try {
+				this.spillChannel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			this.spillFile.delete();
+			this.spillChannel = null;
+		}
+	}
+
+	/**
+	 * @return the number of most recent rounds retained, 0 for the full history
+	 */
+	public int getRetainedRounds() {
+		return retainedRounds;
+	}
+
+	/**
+	 * @return the latest simulation round recorded
+	 */
+	public int getLatestRound() {
+		return latestRound;
+	}
+
+}
@@ -0,0 +1,172 @@
+package nl.uu.mal;
+
+import java.io.File;
+
+/**
+ * Class representing the state of a whole population of {@link Skater}s: the position of each skater and the payoffs
+ * of all {@link Action}s per skater. The state is addressed by the slot of a skater (see {@link Skater#getSlot()}) and
+ * the index of an action, so neither skaters nor actions need to hold any state objects of their own. Implementations
+ * keep the state in flat primitive storage, either on the heap ({@link HeapPopulationStore}) or outside of it
+ * ({@link OffHeapPopulationStore}).
+ *
+ * @author h.nunner
+ */
+public abstract class PopulationStore {
+
+	/**
+	 * Creates a population store based on the parameters in {@link Properties}.
+	 *
+	 * @return the population store
+	 */
+	public static PopulationStore createDefault() {
+		if (Properties.OFF_HEAP_STORE) {
+			return new OffHeapPopulationStore(Properties.OFF_HEAP_DIRECTORY != null
+					? new File(Properties.OFF_HEAP_DIRECTORY) : null);
+		}
+		return new HeapPopulationStore();
+	}
+
+
+	/**
+	 * Makes sure the store is able to hold the state of the given number of skaters.
+	 *
+	 * @param skaters
+	 * 			the number of skaters
+	 */
+	public abstract void ensureCapacity(int skaters);
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @return the x-coordinate of the skater
+	 */
+	public abstract double getX(int slot);
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @return the y-coordinate of the skater
+	 */
+	public abstract double getY(int slot);
+
+	/**
+	 * Sets the position of a skater.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param x
+	 * 			the x-coordinate
+	 * @param y
+	 * 			the y-coordinate
+	 */
+	public abstract void setPosition(int slot, double x, double y);
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the cumulated payoff of the action
+	 */
+	public abstract int getCumulatedPayoff(int slot, int actionIndex);
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @param cumulatedPayoff
+	 * 			the cumulated payoff of the action to set
+	 */
+	public abstract void setCumulatedPayoff(int slot, int actionIndex, int cumulatedPayoff);
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean payoff of the action
+	 */
+	public abstract double getMeanPayoff(int slot, int actionIndex);
+
+	/**
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @param meanPayoff
+	 * 			the mean payoff of the action to set
+	 */
+	public abstract void setMeanPayoff(int slot, int actionIndex, double meanPayoff);
+
+	/**
+	 * Moves the state of the skaters to other slots of the store.
+	 *
+	 * @param slots
+	 * 			the new slot per current slot, for all skaters of the population
+	 */
+	public abstract void permute(int[] slots);
+
+	/**
+	 * Creates a copy-on-write fork of the store. Both stores share all state until either writes to it.
+	 *
+	 * @return the fork of the store
+	 */
+	public abstract PopulationStore fork();
+
+	/**
+	 * Releases all resources held by the store. The store must not be used afterwards.
+	 */
+	public abstract void close();
+
+
+	/**
+	 * Increases the cumulated payoff of an action with a reward.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param actionIndex
+	 * 			the action index
+	 * @param reward
+	 * 			the reward
+	 */
+	public void giveReward(int slot, int actionIndex, int reward) {
+		setCumulatedPayoff(slot, actionIndex, getCumulatedPayoff(slot, actionIndex) + reward);
+	}
+
+	/**
+	 * Updates the mean payoffs of all actions of a skater, based on the cumulated payoffs and the simulation round.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @param simulationRound
+	 * 			the simulation round (starting with round 1 - do not confuse with index starting at 0)
+	 */
+	public void updateMeanPayoffs(int slot, int simulationRound) {
+		for (int i = 0; i < Properties.ACTION_COUNT; i++) {
+			setMeanPayoff(slot, i, Double.valueOf(getCumulatedPayoff(slot, i)) / Double.valueOf(simulationRound));
+		}
+	}
+
+	/**
+	 * Gets the action with the highest cumulated payoff for a skater. Ties are resolved in favor of the lowest action
+	 * index, i.e. the smallest angle.
+	 *
+	 * @param slot
+	 * 			the slot of the skater
+	 * @return the index of the best action
+	 */
+	public int getBestAction(int slot) {
+		int best = 0;
+		int bestPayoff = getCumulatedPayoff(slot, 0);
+		for (int i = 1; i < Properties.ACTION_COUNT; i++) {
+			int payoff = getCumulatedPayoff(slot, i);
+			if (payoff > bestPayoff) {
+				best = i;
+				bestPayoff = payoff;
+			}
+		}
+		return best;
+	}
+
+}
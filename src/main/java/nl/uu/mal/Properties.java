@@ -15,13 +15,52 @@ public final class Properties {
 	public static final double DISTANCE_INCREMENT = Double.valueOf(STD_DISTANCE)
 			/ Double.valueOf(DISTANCE_FRAGMENTATION);
 	public static final double EPSILON_GREEDY = 0.1;							// ε
+	public static final boolean STATE_AWARE_LEARNING = false;					// q-learning on occupied sectors
+	public static final double SENSING_RADIUS = Properties.COLLISION_RADIUS + STD_DISTANCE;
+	public static final float LEARNING_RATE = 0.1f;								// α
+	public static final float DISCOUNT_FACTOR = 0.9f;							// γ
 
 	// gameplay/layout
 	public static final int DEFAULT_ROUNDS = 1000;
 	public static final int PLAYER_COUNT = 25;									// N
-	public static final int TORUS_WIDTH = 5;									// w
-	public static final int TORUS_HEIGHT = 5;									// h
+	public static final int TORUS_WIDTH = 10;									// w
+	public static final int TORUS_HEIGHT = 10;									// h
 	public static final double COLLISION_RADIUS = 0.8;							// r
+	public static final String RINK_SHAPE = Topology.TORUS;						// torus, cylinder, klein bottle, bounded
+
+	// collision queries
+	public static final boolean NEIGHBOUR_LISTS = false;						// use verlet neighbour lists
+	public static final double NEIGHBOUR_SKIN = 1.0;							// extra radius of the neighbour lists
+	public static final boolean BLOCKED_MOVE_CACHE = false;						// remember blocked moves until nearby moves
+	public static final int REORDER_INTERVAL = 0;								// rounds between reordering, 0 = never (neighbour lists only)
+
+	// storage
+	public static final boolean OFF_HEAP_STORE = false;							// skater state outside of the heap
+	public static final String OFF_HEAP_DIRECTORY = null;						// for memory-mapped files, null = direct memory
+
+	// replicas
+	public static final int REPLICA_COUNT = 1;									// replicas with different seeds
+	public static final long REPLICA_BASE_SEED = 1L;							// seed of the first replica
+	public static final double CONFIDENCE_LEVEL = 0.95;							// of the confidence intervals (Student's t)
+	public static final double REPLICA_TARGET_HALF_WIDTH = 0.0;					// adaptive replicas, 0 = fixed REPLICA_COUNT
+	public static final int REPLICA_MIN_COUNT = 5;								// adaptive: replicas before stopping
+	public static final int REPLICA_MAX_COUNT = 200;							// adaptive: replicas at most
+	public static final int REPLICA_THREADS = Runtime.getRuntime().availableProcessors();
+
+	// cache of finished simulation runs
+	public static final String RESULT_CACHE_DIRECTORY = null;					// null = no caching
+	public static final long RESULT_CACHE_MAX_BYTES = 1L << 30;
+
+	// output
+	public static final int HISTORY_RETAINED_ROUNDS = 0;						// rounds kept in memory, 0 = full history on disk
+	public static final int HISTORY_BLOCK_RECORDS = 4096;						// records per history block
+
+	// output sampling
+	public static final int SAMPLE_ROUND_STRIDE = 1;							// record every n-th round (and the last)
+	public static final boolean SAMPLE_LAST_ROUND_ONLY = false;
+	public static final double SAMPLE_SKATER_FRACTION = 1.0;					// fraction of skaters recorded
+	public static final long SAMPLE_SEED = 0L;									// seed for choosing recorded skaters
+	public static final boolean SAMPLE_CHANGES_ONLY = false;					// record skaters only if payoffs changed
 
 	// rewards
 	public static final int HIGH_REWARD = 10;									// R1
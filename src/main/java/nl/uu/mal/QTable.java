@@ -0,0 +1,230 @@
+package nl.uu.mal;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the Q-values of a whole population of {@link Skater}s for state-aware reinforcement learning. The
+ * state of a skater is the occupancy of the sectors around it, encoded as a bitmask with one bit per action angle.
+ * All values are packed into flat pages of primitive values, indexed by skater, state and action, so that memory and
+ * update cost do not depend on objects per state or action.
+ *
+ * Pages can be shared between a table and its forks (see {@link #fork()}). A shared page is copied as soon as one of
+ * the tables writes to it, so forking costs no more than the references to the pages.
+ *
+ * @author h.nunner
+ */
+public class QTable {
+
+	// one state per combination of occupied sectors
+	public static final int STATE_COUNT = 1 << Properties.ACTION_COUNT;
+	private static final int VALUES_PER_SKATER = STATE_COUNT * Properties.ACTION_COUNT;
+
+	// pages of skaters, each page being a single array
+	private static final int PAGE_SHIFT = 6;
+	private static final int PAGE_SKATERS = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SKATERS - 1;
+
+	// parameters
+	private float[][] pages;
+	private boolean[] owned;								// per page: false if shared with another table
+	private int pageCount;									// number of allocated pages, at the start of the arrays
+
+
+	/**
+	 * Constructor - creates a new Q-table with all values set to 0.
+	 *
+	 * @param capacity
+	 * 			the initial number of skaters
+	 */
+	public QTable(int capacity) {
+		this.pages = new float[0][];
+		this.owned = new boolean[0];
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Constructor - creates a new Q-table sharing all pages with another table.
+	 *
+	 * @param qTable
+	 * 			the table to share the pages with
+	 */
+	private QTable(QTable qTable) {
+		this.pages = qTable.pages.clone();
+		this.owned = new boolean[this.pages.length];
+		this.pageCount = qTable.pageCount;
+		Arrays.fill(qTable.owned, false);
+	}
+
+
+	/**
+	 * Creates a copy-on-write fork of the table. Both tables share all values until either writes to them.
+	 *
+	 * @return the fork of the table
+	 */
+	public QTable fork() {
+		return new QTable(this);
+	}
+
+	/**
+	 * Makes sure the table is able to hold the values of the given number of skaters.
+	 *
+	 * @param skaters
+	 * 			the number of skaters
+	 */
+	public void ensureCapacity(int skaters) {
+		int pageCount = (skaters + PAGE_MASK) >>> PAGE_SHIFT;
+		if (pageCount > this.pages.length) {
+			// only the references to the pages grow ahead of demand
+			int length = Math.max(pageCount, 2 * this.pages.length);
+			this.pages = Arrays.copyOf(this.pages, length);
+			this.owned = Arrays.copyOf(this.owned, length);
+		}
+		for (int i = this.pageCount; i < pageCount; i++) {
+			this.pages[i] = new float[PAGE_SKATERS * VALUES_PER_SKATER];
+			this.owned[i] = true;
+		}
+		this.pageCount = Math.max(this.pageCount, pageCount);
+	}
+
+	/**
+	 * Gets the page containing the values of a skater.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the page
+	 */
+	private float[] page(int skaterIndex) {
+		return this.pages[skaterIndex >>> PAGE_SHIFT];
+	}
+
+	/**
+	 * Gets the page containing the values of a skater for writing, copying the page first if it is shared.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @return the page
+	 */
+	private float[] writablePage(int skaterIndex) {
+		int page = skaterIndex >>> PAGE_SHIFT;
+		if (!this.owned[page]) {
+			this.pages[page] = this.pages[page].clone();
+			this.owned[page] = true;
+		}
+		return this.pages[page];
+	}
+
+	/**
+	 * Gets the index of the first action value for a skater in a given state.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param state
+	 * 			the state
+	 * @return the index within the page of the skater
+	 */
+	private static int offset(int skaterIndex, int state) {
+		return ((skaterIndex & PAGE_MASK) * STATE_COUNT + state) * Properties.ACTION_COUNT;
+	}
+
+	/**
+	 * Gets the Q-value of an action for a skater in a given state.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param state
+	 * 			the state
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the Q-value
+	 */
+	public float getValue(int skaterIndex, int state, int actionIndex) {
+		return page(skaterIndex)[offset(skaterIndex, state) + actionIndex];
+	}
+
+	/**
+	 * Gets the action with the highest Q-value for a skater in a given state. Ties are resolved in favor of the lowest
+	 * action index.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param state
+	 * 			the state
+	 * @return the index of the best action
+	 */
+	public int getBestAction(int skaterIndex, int state) {
+		float[] values = page(skaterIndex);
+		int offset = offset(skaterIndex, state);
+		int best = 0;
+		for (int i = 1; i < Properties.ACTION_COUNT; i++) {
+			if (values[offset + i] > values[offset + best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Updates the Q-value of an action by one step of Q-learning.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param state
+	 * 			the state the action has been performed in
+	 * @param actionIndex
+	 * 			the action index
+	 * @param reward
+	 * 			the reward received for the action
+	 * @param nextState
+	 * 			the state after performing the action
+	 */
+	public void update(int skaterIndex, int state, int actionIndex, float reward, int nextState) {
+		float[] values = writablePage(skaterIndex);
+		int next = offset(skaterIndex, nextState);
+		float maxNext = values[next];
+		for (int i = 1; i < Properties.ACTION_COUNT; i++) {
+			maxNext = Math.max(maxNext, values[next + i]);
+		}
+		int index = offset(skaterIndex, state) + actionIndex;
+		values[index] += Properties.LEARNING_RATE
+				* (reward + Properties.DISCOUNT_FACTOR * maxNext - values[index]);
+	}
+
+	/**
+	 * Moves the values of the skaters to other rows of the table. The rows are permuted in place, cycle by cycle, so
+	 * only the values of two skaters are buffered at a time, rather than a second table.
+	 *
+	 * @param slots
+	 * 			the new row per current row, for all skaters of the population
+	 */
+	public void permute(int[] slots) {
+		float[] carried = new float[VALUES_PER_SKATER];
+		float[] displaced = new float[VALUES_PER_SKATER];
+		boolean[] done = new boolean[slots.length];
+		for (int start = 0; start < slots.length; start++) {
+			if (done[start]) {
+				continue;
+			}
+			// carry the values along the cycle, until they return to their start
+			System.arraycopy(page(start), offset(start, 0), carried, 0, VALUES_PER_SKATER);
+			int current = start;
+			while (!done[current]) {
+				done[current] = true;
+				int next = slots[current];
+				System.arraycopy(page(next), offset(next, 0), displaced, 0, VALUES_PER_SKATER);
+				System.arraycopy(carried, 0, writablePage(next), offset(next, 0), VALUES_PER_SKATER);
+				float[] swap = carried;
+				carried = displaced;
+				displaced = swap;
+				current = next;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of skaters the table is able to hold
+	 */
+	public int getCapacity() {
+		return this.pageCount * PAGE_SKATERS;
+	}
+
+}
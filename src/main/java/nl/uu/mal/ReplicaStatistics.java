@@ -0,0 +1,301 @@
+package nl.uu.mal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * Class representing streaming statistics over replicas of a simulation. The mean payoffs per angle and simulation
+ * round of each finished replica are folded into a running mean and variance (Welford's method), so the memory needed
+ * does not depend on the number of replicas and individual replica series need not be kept.
+ *
+ * @author h.nunner
+ */
+public class ReplicaStatistics {
+
+	// parameters
+	private int[] rounds;						// recorded simulation rounds, defined by the first replica
+	private int replicas;
+
+	// running statistics per recorded round and angle, indexed by sample * ACTION_COUNT + action index
+	private double[] means;
+	private double[] squaredDeviations;
+
+	// quantile of Student's t-distribution, cached for the last confidence level and number of replicas
+	private double quantileLevel;
+	private int quantileReplicas;
+	private double quantile;
+
+
+	/**
+	 * Constructor - creates new, empty replica statistics.
+	 */
+	public ReplicaStatistics() {
+		this.replicas = 0;
+	}
+
+
+	/**
+	 * Checks that a replica recorded the same rounds as the previous ones, or defines the recorded rounds for the
+	 * first replica.
+	 *
+	 * @param rounds
+	 * 			the rounds recorded by the replica
+	 */
+	private void checkRounds(int[] rounds) {
+		if (this.rounds == null) {
+			this.rounds = rounds;
+			this.means = new double[rounds.length * Properties.ACTION_COUNT];
+			this.squaredDeviations = new double[rounds.length * Properties.ACTION_COUNT];
+		} else if (!Arrays.equals(this.rounds, rounds)) {
+			throw new IllegalArgumentException("Replica with different recorded rounds");
+		}
+	}
+
+	/**
+	 * Folds the mean payoffs per angle of a finished replica into the statistics.
+	 *
+	 * @param payoffsPerAngle
+	 * 			the mean payoffs per angle and simulation round of the replica (see
+	 * 			{@link SkatingRink#getPayoffsPerAngle()})
+	 */
+	public synchronized void add(Map<Integer, XYSeries> payoffsPerAngle) {
+		XYSeries firstSeries = payoffsPerAngle.values().iterator().next();
+		int[] rounds = new int[firstSeries.getItemCount()];
+		for (int i = 0; i < rounds.length; i++) {
+			rounds[i] = firstSeries.getX(i).intValue();
+		}
+		checkRounds(rounds);
+
+		this.replicas++;
+		Iterator<Entry<Integer, XYSeries>> payoffsIt = payoffsPerAngle.entrySet().iterator();
+		while (payoffsIt.hasNext()) {
+			Entry<Integer, XYSeries> payoff = payoffsIt.next();
+			int actionIndex = payoff.getKey() / Properties.BASE_ANGLE;
+			XYSeries series = payoff.getValue();
+			for (int i = 0; i < rounds.length; i++) {
+				add(i * Properties.ACTION_COUNT + actionIndex, series.getY(i).doubleValue());
+			}
+		}
+	}
+
+	/**
+	 * Folds the mean payoffs per angle of a finished replica into the statistics.
+	 *
+	 * @param result
+	 * 			the result of the replica
+	 */
+	public synchronized void add(SimulationResult result) {
+		int[] rounds = new int[result.getSampleCount()];
+		for (int i = 0; i < rounds.length; i++) {
+			rounds[i] = result.getRound(i);
+		}
+		checkRounds(rounds);
+
+		this.replicas++;
+		for (int sample = 0; sample < rounds.length; sample++) {
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				add(sample * Properties.ACTION_COUNT + actionIndex, result.getMeanPayoff(sample, actionIndex));
+			}
+		}
+	}
+
+	/**
+	 * Folds a single value into the running mean and variance (Welford's method).
+	 *
+	 * @param index
+	 * 			the index of round and angle
+	 * @param value
+	 * 			the value of the current replica
+	 */
+	private void add(int index, double value) {
+		double delta = value - this.means[index];
+		this.means[index] += delta / this.replicas;
+		this.squaredDeviations[index] += delta * (value - this.means[index]);
+	}
+
+	/**
+	 * Gets the mean over all replicas.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round (see {@link #getRound(int)})
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean over all replicas
+	 */
+	public synchronized double getMean(int sample, int actionIndex) {
+		return this.means[sample * Properties.ACTION_COUNT + actionIndex];
+	}
+
+	/**
+	 * Gets the sample variance over all replicas.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round (see {@link #getRound(int)})
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the sample variance over all replicas, 0 for less than two replicas
+	 */
+	public synchronized double getVariance(int sample, int actionIndex) {
+		if (this.replicas < 2) {
+			return 0.0;
+		}
+		return this.squaredDeviations[sample * Properties.ACTION_COUNT + actionIndex] / (this.replicas - 1);
+	}
+
+	/**
+	 * Gets the half width of the confidence interval of the mean over all replicas, at the confidence level defined in
+	 * {@link Properties#CONFIDENCE_LEVEL}.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round (see {@link #getRound(int)})
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the half width of the confidence interval
+	 */
+	public synchronized double getConfidenceHalfWidth(int sample, int actionIndex) {
+		return getConfidenceHalfWidth(sample, actionIndex, Properties.CONFIDENCE_LEVEL);
+	}
+
+	/**
+	 * Gets the half width of the confidence interval of the mean over all replicas. As the variance is estimated from
+	 * the replicas themselves, the interval is based on Student's t-distribution with one degree of freedom less than
+	 * the number of replicas, which is considerably wider than the normal approximation for few replicas.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round (see {@link #getRound(int)})
+	 * @param actionIndex
+	 * 			the action index
+	 * @param level
+	 * 			the confidence level, e.g. 0.95
+	 * @return the half width of the confidence interval, infinite for less than two replicas
+	 */
+	public synchronized double getConfidenceHalfWidth(int sample, int actionIndex, double level) {
+		if (this.replicas < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (this.quantileReplicas != this.replicas || this.quantileLevel != level) {
+			this.quantile = getTQuantile(level, this.replicas - 1);
+			this.quantileReplicas = this.replicas;
+			this.quantileLevel = level;
+		}
+		return this.quantile * Math.sqrt(getVariance(sample, actionIndex) / this.replicas);
+	}
+
+	/**
+	 * Gets the two-sided quantile of Student's t-distribution, i.e. the value t for which a t-distributed variable lies
+	 * within [-t, t] with the given probability. The probability is computed in closed form for an integer number of
+	 * degrees of freedom (Abramowitz and Stegun, 26.7.3 and 26.7.4) and inverted by bisection.
+	 *
+	 * @param level
+	 * 			the probability, between 0 and 1 (exclusive)
+	 * @param degreesOfFreedom
+	 * 			the degrees of freedom, at least 1
+	 * @return the quantile
+	 */
+	public static double getTQuantile(double level, int degreesOfFreedom) {
+		if (level <= 0.0 || level >= 1.0 || degreesOfFreedom < 1) {
+			throw new IllegalArgumentException("Invalid level or degrees of freedom: " + level + ", "
+					+ degreesOfFreedom);
+		}
+		// the probability grows with the angle θ = atan(t / sqrt(degrees of freedom)), which is bounded
+		double low = 0.0;
+		double high = Math.PI / 2.0;
+		for (int i = 0; i < 64; i++) {
+			double theta = (low + high) / 2.0;
+			if (getTProbability(theta, degreesOfFreedom) < level) {
+				low = theta;
+			} else {
+				high = theta;
+			}
+		}
+		return Math.sqrt(degreesOfFreedom) * Math.tan((low + high) / 2.0);
+	}
+
+	/**
+	 * Gets the probability of a t-distributed variable to lie within [-t, t].
+	 *
+	 * @param theta
+	 * 			the angle atan(t / sqrt(degrees of freedom))
+	 * @param degreesOfFreedom
+	 * 			the degrees of freedom, at least 1
+	 * @return the probability
+	 */
+	private static double getTProbability(double theta, int degreesOfFreedom) {
+		double sin = Math.sin(theta);
+		double squaredCos = Math.cos(theta) * Math.cos(theta);
+		double sum = 1.0;
+		double term = 1.0;
+		if (degreesOfFreedom % 2 == 0) {
+			for (int k = 2; k < degreesOfFreedom; k += 2) {
+				term *= squaredCos * (k - 1) / k;
+				sum += term;
+			}
+			return sin * sum;
+		}
+		if (degreesOfFreedom == 1) {
+			return 2.0 * theta / Math.PI;
+		}
+		for (int k = 3; k < degreesOfFreedom; k += 2) {
+			term *= squaredCos * (k - 1) / k;
+			sum += term;
+		}
+		return 2.0 / Math.PI * (theta + sin * Math.cos(theta) * sum);
+	}
+
+	/**
+	 * Writes the statistics as comma separated values, one line per recorded round and angle.
+	 *
+	 * @param writer
+	 * 			the writer to write to
+	 * @throws IOException
+	 * 			if writing fails
+	 */
+	public synchronized void writeCsv(Writer writer) throws IOException {
+		writer.append("ROUND,ANGLE,REPLICAS,MEAN,VARIANCE,CI_LOW,CI_HIGH\n");
+		for (int sample = 0; sample < getSampleCount(); sample++) {
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				double mean = getMean(sample, actionIndex);
+				double halfWidth = getConfidenceHalfWidth(sample, actionIndex);
+				writer.append(String.valueOf(this.rounds[sample])).append(",")
+						.append(String.valueOf(actionIndex * Properties.BASE_ANGLE)).append(",")
+						.append(String.valueOf(this.replicas)).append(",")
+						.append(String.valueOf(mean)).append(",")
+						.append(String.valueOf(getVariance(sample, actionIndex))).append(",")
+						.append(String.valueOf(mean - halfWidth)).append(",")
+						.append(String.valueOf(mean + halfWidth)).append("\n");
+			}
+		}
+	}
+
+	/**
+	 * Gets the simulation round of a recorded round.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round
+	 * @return the simulation round
+	 */
+	public synchronized int getRound(int sample) {
+		return this.rounds[sample];
+	}
+
+	/**
+	 * @return the number of recorded rounds, 0 before the first replica
+	 */
+	public synchronized int getSampleCount() {
+		return rounds == null ? 0 : rounds.length;
+	}
+
+	/**
+	 * @return the number of replicas folded into the statistics
+	 */
+	public synchronized int getReplicas() {
+		return replicas;
+	}
+
+}
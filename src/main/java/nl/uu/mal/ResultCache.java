@@ -0,0 +1,208 @@
+package nl.uu.mal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Logger;
+
+/**
+ * Class representing a content-addressed cache of finished simulation runs on the local disk. Each
+ * {@link SimulationResult} is stored in a file named after a hash of everything determining the run: the parameters in
+ * {@link Properties} that change the simulated behavior or the recorded rounds, the dimensions of the skating rink, the
+ * number of skaters and rounds, and the seed. Runs with the same key are read from the cache instead of being simulated
+ * again. When the cache grows beyond its maximum size, the least recently used results are evicted.
+ *
+ * Parameters that only affect performance (collision queries, storage, threads), the replicas or other outputs are
+ * not part of the key, so changing them does not invalidate the cache. Neither are changes to the code of the
+ * simulation itself; the cache directory must be cleared in that case, as well as when adding a parameter changing
+ * the simulation without adding it to {@link #createKey(int, int, int, int, long)}.
+ *
+ * @author h.nunner
+ */
+public class ResultCache {
+
+	// tool for logging purposes
+	private static final Logger LOG = Logger.getLogger(ResultCache.class.getName());
+
+	// file extension of cached results
+	private static final String EXTENSION = ".result";
+
+	// parameters
+	private File directory;
+	private long maxBytes;
+
+
+	/**
+	 * Constructor - creates a new result cache.
+	 *
+	 * @param directory
+	 * 			the directory to store results in
+	 * @param maxBytes
+	 * 			the maximum size of all stored results in bytes
+	 */
+	public ResultCache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		directory.mkdirs();
+	}
+
+
+	/**
+	 * Creates the key of a simulation run.
+	 *
+	 * @param width
+	 * 			the width of the skating rink
+	 * @param height
+	 * 			the height of the skating rink
+	 * @param skaters
+	 * 			the number of skaters
+	 * @param rounds
+	 * 			the number of simulation rounds
+	 * @param seed
+	 * 			the seed of the skating rink
+	 * @return the key, as hexadecimal hash
+	 */
+	public static String createKey(int width, int height, int skaters, int rounds, long seed) {
+		StringBuilder configuration = new StringBuilder();
+
+		// actions and learning
+		configuration.append("ACTION_COUNT=").append(Properties.ACTION_COUNT).append("\n")
+				.append("BASE_ANGLE=").append(Properties.BASE_ANGLE).append("\n")
+				.append("STD_DISTANCE=").append(Properties.STD_DISTANCE).append("\n")
+				.append("DISTANCE_FRAGMENTATION=").append(Properties.DISTANCE_FRAGMENTATION).append("\n")
+				.append("EPSILON_GREEDY=").append(Properties.EPSILON_GREEDY).append("\n")
+				.append("STATE_AWARE_LEARNING=").append(Properties.STATE_AWARE_LEARNING).append("\n")
+				.append("SENSING_RADIUS=").append(Properties.SENSING_RADIUS).append("\n")
+				.append("LEARNING_RATE=").append(Properties.LEARNING_RATE).append("\n")
+				.append("DISCOUNT_FACTOR=").append(Properties.DISCOUNT_FACTOR).append("\n");
+
+		// layout and rewards
+		configuration.append("COLLISION_RADIUS=").append(Properties.COLLISION_RADIUS).append("\n")
+				.append("RINK_SHAPE=").append(Properties.RINK_SHAPE).append("\n")
+				.append("HIGH_REWARD=").append(Properties.HIGH_REWARD).append("\n")
+				.append("LOW_REWARD=").append(Properties.LOW_REWARD).append("\n");
+
+		// recorded rounds
+		configuration.append("SAMPLE_ROUND_STRIDE=").append(Properties.SAMPLE_ROUND_STRIDE).append("\n")
+				.append("SAMPLE_LAST_ROUND_ONLY=").append(Properties.SAMPLE_LAST_ROUND_ONLY).append("\n");
+
+		// parameters of the run
+		configuration.append("width=").append(width).append("\n")
+				.append("height=").append(height).append("\n")
+				.append("skaters=").append(skaters).append("\n")
+				.append("rounds=").append(rounds).append("\n")
+				.append("seed=").append(seed).append("\n");
+
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256")
+					.digest(configuration.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder key = new StringBuilder();
+			for (int i = 0; i < hash.length; i++) {
+				key.append(String.format("%02x", hash[i]));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	/**
+	 * Gets a cached result.
+	 *
+	 * @param key
+	 * 			the key of the simulation run
+	 * @return the cached result, or null if the run is not cached
+	 */
+	public synchronized SimulationResult get(String key) {
+		File file = new File(this.directory, key + EXTENSION);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				SimulationResult result = SimulationResult.read(in);
+				// mark as recently used
+				file.setLastModified(System.currentTimeMillis());
+				return result;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			LOG.warning("Discarding unreadable cached result " + file + ": " + e.getMessage());
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a result and evicts the least recently used results, if the cache exceeds its maximum size.
+	 *
+	 * @param key
+	 * 			the key of the simulation run
+	 * @param result
+	 * 			the result of the simulation run
+	 */
+	public synchronized void put(String key, SimulationResult result) {
+		File file = new File(this.directory, key + EXTENSION);
+		File tempFile = new File(this.directory, key + EXTENSION + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				result.write(out);
+			} finally {
+				out.close();
+			}
+			// make the result visible only once it is complete
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("Unable to rename " + tempFile + " to " + file);
+			}
+		} catch (IOException e) {
+			LOG.warning("Unable to cache result " + file + ": " + e.getMessage());
+			tempFile.delete();
+			return;
+		}
+		evict();
+	}
+
+	/**
+	 * Deletes the least recently used results, until all results fit into the maximum size of the cache.
+	 */
+	private void evict() {
+		File[] files = this.directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		long totalBytes = 0;
+		for (int i = 0; i < files.length; i++) {
+			totalBytes += files[i].length();
+		}
+		if (totalBytes <= this.maxBytes) {
+			return;
+		}
+
+		// oldest first
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File o1, File o2) {
+				return Long.compare(o1.lastModified(), o2.lastModified());
+			}
+		});
+		for (int i = 0; i < files.length && totalBytes > this.maxBytes; i++) {
+			if (files[i].getName().endsWith(EXTENSION)) {
+				totalBytes -= files[i].length();
+				files[i].delete();
+			}
+		}
+	}
+
+}
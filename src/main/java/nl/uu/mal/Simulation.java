@@ -1,5 +1,15 @@
 package nl.uu.mal;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.jfree.ui.RefineryUtilities;
 
 /**
@@ -9,6 +19,10 @@ import org.jfree.ui.RefineryUtilities;
  */
 public class Simulation {
 
+	// cache of finished simulation runs
+	private static final ResultCache RESULT_CACHE = Properties.RESULT_CACHE_DIRECTORY == null ? null
+			: new ResultCache(new File(Properties.RESULT_CACHE_DIRECTORY), Properties.RESULT_CACHE_MAX_BYTES);
+
 	/**
 	 * Starting point for the simulation.
 	 *
@@ -17,12 +31,26 @@ public class Simulation {
 	 */
 	public static void main(String[] args) {
 
+		// adaptive number of replicas: aggregate statistics only
+		if (Properties.REPLICA_TARGET_HALF_WIDTH > 0.0) {
+			Sweep sweep = Sweep.createDefault();
+			SweepPoint point = sweep.addPoint(Properties.TORUS_WIDTH, Properties.TORUS_HEIGHT,
+					Properties.PLAYER_COUNT, Properties.DEFAULT_ROUNDS);
+			sweep.run();
+			CsvWriter.generateReplicaCsvFile(point.getReplicaStatistics());
+			return;
+		}
+
+		// multiple replicas: aggregate statistics only
+		if (Properties.REPLICA_COUNT > 1) {
+			ReplicaStatistics replicaStatistics = runReplicas(Properties.REPLICA_COUNT, Properties.REPLICA_BASE_SEED);
+			CsvWriter.generateReplicaCsvFile(replicaStatistics);
+			return;
+		}
+
 		// initialize skating rink and skaters
 		SkatingRink skatingRink = SkatingRink.getInstance();
-		for (int i = 0; i < Properties.PLAYER_COUNT; i++) {
-			Skater skater = new Skater(skatingRink);
-			skatingRink.addSkater(skater);
-		}
+		addSkaters(skatingRink, Properties.PLAYER_COUNT);
 
 		// simulate skating rounds
 		skatingRink.letThemSkate();
@@ -37,7 +65,142 @@ public class Simulation {
         chart.setVisible(true);
 
         // write to csv
-        CsvWriter.generateCsvFile(skatingRink.getPayoffsPerSkater().toString());
+        CsvWriter.generateCsvFile(skatingRink.getPayoffHistory());
+        skatingRink.close();
+	}
+
+	/**
+	 * Adds a number of new skaters to a skating rink.
+	 *
+	 * @param skatingRink
+	 * 			the skating rink
+	 * @param count
+	 * 			the number of skaters to add
+	 */
+	private static void addSkaters(SkatingRink skatingRink, int count) {
+		for (int i = 0; i < count; i++) {
+			Skater skater = new Skater(skatingRink);
+			skatingRink.addSkater(skater);
+		}
+	}
+
+	/**
+	 * Simulates a number of replicas with consecutive seeds and folds the mean payoffs per angle of each replica into
+	 * streaming statistics, as soon as the replica is finished.
+	 *
+	 * @param replicas
+	 * 			the number of replicas
+	 * @param baseSeed
+	 * 			the seed of the first replica
+	 * @return the statistics over all replicas
+	 */
+	public static ReplicaStatistics runReplicas(int replicas, long baseSeed) {
+		ReplicaStatistics replicaStatistics = new ReplicaStatistics();
+		for (int i = 0; i < replicas; i++) {
+			replicaStatistics.add(runSimulation(Properties.TORUS_WIDTH, Properties.TORUS_HEIGHT,
+					Properties.PLAYER_COUNT, Properties.DEFAULT_ROUNDS, baseSeed + i));
+			SkatingRink.LOG.info("Replica " + (i + 1) + " of " + replicas + " finished");
+		}
+		return replicaStatistics;
+	}
+
+	/**
+	 * Simulates a single run on a new skating rink, or reads its result from the cache if the same run has been
+	 * simulated before (see Properties.RESULT_CACHE_DIRECTORY).
+	 *
+	 * @param width
+	 * 			the width of the skating rink
+	 * @param height
+	 * 			the height of the skating rink
+	 * @param skaters
+	 * 			the number of skaters
+	 * @param rounds
+	 * 			the number of simulation rounds
+	 * @param seed
+	 * 			the seed of the skating rink
+	 * @return the result of the run
+	 */
+	public static SimulationResult runSimulation(int width, int height, int skaters, int rounds, long seed) {
+		String key = null;
+		if (RESULT_CACHE != null) {
+			key = ResultCache.createKey(width, height, skaters, rounds, seed);
+			SimulationResult cachedResult = RESULT_CACHE.get(key);
+			if (cachedResult != null) {
+				return cachedResult;
+			}
+		}
+
+		SkatingRink skatingRink = SkatingRink.createInstance(width, height, seed);
+		// only the mean payoffs per angle and the final payoffs are kept: no history per skater
+		skatingRink.disablePayoffHistory();
+		addSkaters(skatingRink, skaters);
+		skatingRink.letThemSkate(rounds);
+		// the state of the skaters is released on closing: take the result first
+		SimulationResult result = SimulationResult.of(skatingRink);
+		skatingRink.close();
+
+		if (RESULT_CACHE != null) {
+			RESULT_CACHE.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Forks a running skating rink into variants and simulates all variants concurrently for a number of further
+	 * rounds, without simulating the shared rounds so far again (see {@link SkatingRink#fork(Variant)}).
+	 *
+	 * @param skatingRink
+	 * 			the running skating rink, not to be simulated while the variants are running
+	 * @param variants
+	 * 			the parameters of the variants
+	 * @param rounds
+	 * 			the number of rounds to simulate after the fork
+	 * @param threads
+	 * 			the number of worker threads
+	 * @return the results of the variants, in the order of the variants
+	 */
+	public static List<SimulationResult> runVariants(SkatingRink skatingRink, List<Variant> variants, final int rounds,
+			int threads) {
+		// fork all variants first, as forking reads the state of the running skating rink
+		List<SkatingRink> forks = new ArrayList<SkatingRink>();
+		Iterator<Variant> variantsIt = variants.iterator();
+		while (variantsIt.hasNext()) {
+			SkatingRink fork = skatingRink.fork(variantsIt.next());
+			// only the result of a variant is returned: no history per skater
+			fork.disablePayoffHistory();
+			forks.add(fork);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			List<Future<SimulationResult>> futures = new ArrayList<Future<SimulationResult>>();
+			Iterator<SkatingRink> forksIt = forks.iterator();
+			while (forksIt.hasNext()) {
+				final SkatingRink fork = forksIt.next();
+				futures.add(executor.submit(new Callable<SimulationResult>() {
+					public SimulationResult call() {
+						fork.letThemSkate(rounds);
+						SimulationResult result = SimulationResult.of(fork);
+						fork.close();
+						return result;
+					}
+				}));
+			}
+
+			List<SimulationResult> results = new ArrayList<SimulationResult>();
+			Iterator<Future<SimulationResult>> futuresIt = futures.iterator();
+			while (futuresIt.hasNext()) {
+				results.add(futuresIt.next().get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Variants interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Variant failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 }
@@ -0,0 +1,274 @@
+package nl.uu.mal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * Class representing the outputs of a finished simulation run: the mean payoffs per angle over time and the final
+ * cumulated payoffs per skater and angle. Results are kept as primitive arrays, so they can be stored and read back
+ * (e.g. by the {@link ResultCache}) without the skating rink they originate from. The mean payoffs per angle are only
+ * available for the recorded (sampled) rounds, which always include the last round (see {@link OutputSampler}).
+ *
+ * @author h.nunner
+ */
+public class SimulationResult {
+
+	// values allocated at once when reading, before the stream proved to hold more
+	private static final int READ_CHUNK = 1 << 12;
+
+	// parameters
+	private int[] rounds;						// recorded simulation rounds
+	private int skaters;
+	private double[] meanPayoffsPerAngle;		// indexed by sample * ACTION_COUNT + action index
+	private int[] finalPayoffs;					// indexed by skater index * ACTION_COUNT + action index
+
+
+	/**
+	 * Constructor - creates a new simulation result.
+	 *
+	 * @param rounds
+	 * 			the recorded simulation rounds
+	 * @param skaters
+	 * 			the number of skaters
+	 * @param meanPayoffsPerAngle
+	 * 			the mean payoffs per recorded round and angle
+	 * @param finalPayoffs
+	 * 			the final cumulated payoffs per skater and angle
+	 */
+	private SimulationResult(int[] rounds, int skaters, double[] meanPayoffsPerAngle, int[] finalPayoffs) {
+		this.rounds = rounds;
+		this.skaters = skaters;
+		this.meanPayoffsPerAngle = meanPayoffsPerAngle;
+		this.finalPayoffs = finalPayoffs;
+	}
+
+
+	/**
+	 * Extracts the result of a finished simulation from a skating rink.
+	 *
+	 * @param skatingRink
+	 * 			the skating rink after the simulation
+	 * @return the result of the simulation
+	 */
+	public static SimulationResult of(SkatingRink skatingRink) {
+		Map<Integer, XYSeries> payoffsPerAngle = skatingRink.getPayoffsPerAngle();
+		XYSeries firstSeries = payoffsPerAngle.values().iterator().next();
+		int[] rounds = new int[firstSeries.getItemCount()];
+		for (int i = 0; i < rounds.length; i++) {
+			rounds[i] = firstSeries.getX(i).intValue();
+		}
+		double[] meanPayoffsPerAngle = new double[rounds.length * Properties.ACTION_COUNT];
+		Iterator<Entry<Integer, XYSeries>> payoffsIt = payoffsPerAngle.entrySet().iterator();
+		while (payoffsIt.hasNext()) {
+			Entry<Integer, XYSeries> payoff = payoffsIt.next();
+			int actionIndex = payoff.getKey() / Properties.BASE_ANGLE;
+			for (int i = 0; i < rounds.length; i++) {
+				double meanPayoff = payoff.getValue().getY(i).doubleValue();
+				meanPayoffsPerAngle[i * Properties.ACTION_COUNT + actionIndex] = meanPayoff;
+			}
+		}
+
+		List<Skater> skaters = skatingRink.getSkaters();
+		int[] finalPayoffs = new int[skaters.size() * Properties.ACTION_COUNT];
+		Iterator<Skater> skatersIt = skaters.iterator();
+		while (skatersIt.hasNext()) {
+			Skater skater = skatersIt.next();
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				int index = skater.getIndex() * Properties.ACTION_COUNT + actionIndex;
+				finalPayoffs[index] = skater.getCumulatedPayoff(actionIndex);
+			}
+		}
+		return new SimulationResult(rounds, skaters.size(), meanPayoffsPerAngle, finalPayoffs);
+	}
+
+	/**
+	 * Reads a simulation result, as written by {@link #write(DataOutputStream)}. The arrays grow while their values are
+	 * read, so a corrupt length fails on the end of the stream rather than on allocating the announced length.
+	 *
+	 * @param in
+	 * 			the stream to read from
+	 * @return the simulation result
+	 * @throws IOException
+	 * 			if reading fails or the stream does not hold a valid result
+	 */
+	public static SimulationResult read(DataInputStream in) throws IOException {
+		int[] rounds = readInts(in, readLength(in));
+		int skaters = readLength(in);
+		double[] meanPayoffsPerAngle = readDoubles(in, rounds.length * Properties.ACTION_COUNT);
+		int[] finalPayoffs = readInts(in, skaters * Properties.ACTION_COUNT);
+		return new SimulationResult(rounds, skaters, meanPayoffsPerAngle, finalPayoffs);
+	}
+
+	/**
+	 * Reads the number of recorded rounds or skaters.
+	 *
+	 * @param in
+	 * 			the stream to read from
+	 * @return the number of recorded rounds or skaters
+	 * @throws IOException
+	 * 			if reading fails or the number is out of range
+	 */
+	private static int readLength(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > Integer.MAX_VALUE / Properties.ACTION_COUNT) {
+			throw new IOException("Invalid length: " + length);
+		}
+		return length;
+	}
+
+	/**
+	 * Reads a given number of ints.
+	 *
+	 * @param in
+	 * 			the stream to read from
+	 * @param length
+	 * 			the number of ints
+	 * @return the ints
+	 * @throws IOException
+	 * 			if reading fails, e.g. at the end of the stream
+	 */
+	private static int[] readInts(DataInputStream in, int length) throws IOException {
+		int[] values = new int[Math.min(length, READ_CHUNK)];
+		for (int i = 0; i < length; i++) {
+			if (i == values.length) {
+				values = Arrays.copyOf(values, (int) Math.min(length, 2L * values.length));
+			}
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/**
+	 * Reads a given number of doubles.
+	 *
+	 * @param in
+	 * 			the stream to read from
+	 * @param length
+	 * 			the number of doubles
+	 * @return the doubles
+	 * @throws IOException
+	 * 			if reading fails, e.g. at the end of the stream
+	 */
+	private static double[] readDoubles(DataInputStream in, int length) throws IOException {
+		double[] values = new double[Math.min(length, READ_CHUNK)];
+		for (int i = 0; i < length; i++) {
+			if (i == values.length) {
+				values = Arrays.copyOf(values, (int) Math.min(length, 2L * values.length));
+			}
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	/**
+	 * Writes the simulation result in binary form.
+	 *
+	 * @param out
+	 * 			the stream to write to
+	 * @throws IOException
+	 * 			if writing fails
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(this.rounds.length);
+		for (int i = 0; i < this.rounds.length; i++) {
+			out.writeInt(this.rounds[i]);
+		}
+		out.writeInt(this.skaters);
+		for (int i = 0; i < this.meanPayoffsPerAngle.length; i++) {
+			out.writeDouble(this.meanPayoffsPerAngle[i]);
+		}
+		for (int i = 0; i < this.finalPayoffs.length; i++) {
+			out.writeInt(this.finalPayoffs[i]);
+		}
+	}
+
+	/**
+	 * Gets the mean payoffs per angle over time, in the same form as {@link SkatingRink#getPayoffsPerAngle()}.
+	 *
+	 * @return the mean payoffs per angle
+	 */
+	public Map<Integer, XYSeries> getPayoffsPerAngle() {
+		Map<Integer, XYSeries> payoffsPerAngle = new HashMap<Integer, XYSeries>();
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			int angle = actionIndex * Properties.BASE_ANGLE;
+			XYSeries series = new XYSeries(String.valueOf(angle + "°"));
+			for (int i = 0; i < this.rounds.length; i++) {
+				series.add(this.rounds[i], this.meanPayoffsPerAngle[i * Properties.ACTION_COUNT + actionIndex]);
+			}
+			payoffsPerAngle.put(angle, series);
+		}
+		return payoffsPerAngle;
+	}
+
+	/**
+	 * Gets the mean payoff of an angle in a given recorded round.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round (see {@link #getRound(int)})
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean payoff over all skaters
+	 */
+	public double getMeanPayoff(int sample, int actionIndex) {
+		return this.meanPayoffsPerAngle[sample * Properties.ACTION_COUNT + actionIndex];
+	}
+
+	/**
+	 * Gets the mean payoff of an angle in the last simulation round.
+	 *
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean payoff over all skaters
+	 */
+	public double getFinalMeanPayoff(int actionIndex) {
+		return getMeanPayoff(this.rounds.length - 1, actionIndex);
+	}
+
+	/**
+	 * Gets the simulation round of a recorded round.
+	 *
+	 * @param sample
+	 * 			the index of the recorded round
+	 * @return the simulation round
+	 */
+	public int getRound(int sample) {
+		return this.rounds[sample];
+	}
+
+	/**
+	 * Gets the final cumulated payoff of a skater for an angle.
+	 *
+	 * @param skaterIndex
+	 * 			the skater index
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the final cumulated payoff
+	 */
+	public int getFinalPayoff(int skaterIndex, int actionIndex) {
+		return this.finalPayoffs[skaterIndex * Properties.ACTION_COUNT + actionIndex];
+	}
+
+	/**
+	 * @return the number of recorded rounds
+	 */
+	public int getSampleCount() {
+		return rounds.length;
+	}
+
+	/**
+	 * @return the number of skaters
+	 */
+	public int getSkaters() {
+		return skaters;
+	}
+
+}
@@ -1,6 +1,6 @@
 package nl.uu.mal;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -12,7 +12,8 @@ import java.util.logging.Logger;
  * algorithm. The learning algorithm is implemented within the class and is based on epsilon-greedy reinforcement learning.
  * For a more generic implementation, this could be easily extracted either in a subclass of the Skater class, or better as
  * a generic behavior implemented as strategy pattern. For simplicity, readability and because generic behavior is not
- * required in the assignment a generalization of the approach has been left out.
+ * required in the assignment a generalization of the approach has been left out. Optionally, a state-aware Q-learning
+ * variant based on the occupancy of neighbouring sectors can be used instead (see {@link QTable}).
  *
  * @author h.nunner
  */
@@ -22,10 +23,19 @@ public class Skater {
 	@SuppressWarnings("unused")
 	private static final Logger LOG = Logger.getLogger(Skater.class.getName());
 
+	// squared radii, compared to squared distances
+	private static final double SQUARED_COLLISION_RADIUS = Properties.COLLISION_RADIUS * Properties.COLLISION_RADIUS;
+	private static final double SQUARED_SENSING_RADIUS = Properties.SENSING_RADIUS * Properties.SENSING_RADIUS;
+
 	// parameters
 	private SkatingRink skatingRink;
-	private Position position;
-	private List<Action> availableActions;
+	private int index;										// stable, defines the order of activation and outputs
+	private int slot;										// row in the storage of the population, may change
+	private PopulationStore store;							// position and payoffs
+
+	// verlet neighbour list (see SkatingRink#setNeighbourLists(boolean))
+	private List<Skater> neighbours;
+	private double displacementSinceRebuild;
 
 
 	/**
@@ -36,12 +46,31 @@ public class Skater {
 	 */
 	public Skater(SkatingRink skatingRink) {
 		this.skatingRink = skatingRink;
+		this.index = skatingRink.nextSkaterIndex();
+		this.slot = this.index;
+		this.store = skatingRink.getPopulationStore();
 		initPosition(skatingRink);
-		this.availableActions = Action.createAvailableActions();
 	}
 
 	/**
-	 * Initializes the starting position of the skater within a given {@link SkatingRink}.
+	 * Constructor - copies a skater into a forked {@link SkatingRink}. Position and payoffs are shared through the
+	 * forked population store of the skating rink. The neighbour list is left to be rebuilt.
+	 *
+	 * @param skatingRink
+	 * 			the forked skating rink
+	 * @param skater
+	 * 			the skater to copy
+	 */
+	Skater(SkatingRink skatingRink, Skater skater) {
+		this.skatingRink = skatingRink;
+		this.index = skater.index;
+		this.slot = skater.slot;
+		this.store = skatingRink.getPopulationStore();
+	}
+
+	/**
+	 * Initializes the starting position of the skater within a given {@link SkatingRink}. Positions are continuous
+	 * rather than grid points, as skaters on a fully occupied grid could never move without colliding.
 	 *
 	 * @param skatingRink
 	 * 			the skating rink to position the skater in
@@ -51,17 +80,18 @@ public class Skater {
 		// requirements
 		int width = skatingRink.getWidth();
 		int height = skatingRink.getHeight();
-		List<Skater> otherSkaters = skatingRink.getOtherSkaters(this);
+		List<Skater> candidates = skatingRink.getSkatersBySlot();
 
 		// try a random position first
-		Random rand = new Random();
-		Position initialPosition = new Position(Double.valueOf(rand.nextInt(width)), Double.valueOf(rand.nextInt(height)));
+		Random rand = skatingRink.getRandom();
+		double x = rand.nextDouble() * width;
+		double y = rand.nextDouble() * height;
 		// try random positions, if / while colliding with other skater
-		while (isColliding(initialPosition, otherSkaters)) {
-			initialPosition.setX(Double.valueOf(rand.nextInt(width)));
-			initialPosition.setY(Double.valueOf(rand.nextInt(height)));
+		while (isColliding(x, y, candidates)) {
+			x = rand.nextDouble() * width;
+			y = rand.nextDouble() * height;
 		}
-		this.position = initialPosition;
+		this.store.setPosition(this.slot, x, y);
 	}
 
 
@@ -72,148 +102,317 @@ public class Skater {
 	 */
 	public void move(int simRound) {
 		// requirements/initializations
-		Action prospectiveAction = chooseAction(this.availableActions, simRound);
+		List<Skater> candidates = null;
+		double currentX = getX();
+		double currentY = getY();
+		int state = 0;
+		Action prospectiveAction;
+		if (this.skatingRink.isStateAwareLearning()) {
+			candidates = getCollisionCandidates();
+			state = senseState(currentX, currentY, candidates);
+			prospectiveAction = Action.get(chooseActionIndex(state, simRound));
+		} else {
+			prospectiveAction = Action.get(chooseActionIndex(simRound));
+		}
 		int prospectiveAngle = prospectiveAction.getAngle();
 		int prospectiveDistance = prospectiveAction.getDistance();
 
 		// determine prospective non-collisional position along the wole way of movement, based on
 		// current position, the prospective angle, the prospective distance and the skating rink
 		Position prospectivePosition = null;
-		boolean isColliding = false;
-		List<Skater> otherSkaters = this.skatingRink.getOtherSkaters(this);
-
-		double stepWidth = Properties.DISTANCE_INCREMENT;
-		while (stepWidth <= prospectiveDistance && !isColliding) {
-			prospectivePosition = skatingRink.getNewPosition(position, prospectiveAngle, stepWidth);
-			isColliding = isColliding(prospectivePosition, otherSkaters);
-			stepWidth += Properties.DISTANCE_INCREMENT;
+		BlockedMoveCache blockedMoveCache = this.skatingRink.getBlockedMoveCache();
+		// nothing moved nearby since the same movement was blocked the last time: still blocked
+		boolean isColliding = blockedMoveCache != null
+				&& blockedMoveCache.isBlocked(this.slot, prospectiveAction.getIndex(), currentX, currentY);
+
+		if (!isColliding) {
+			if (candidates == null) {
+				candidates = getCollisionCandidates();
+			}
+			double stepWidth = Properties.DISTANCE_INCREMENT;
+			while (stepWidth <= prospectiveDistance && !isColliding) {
+				prospectivePosition = skatingRink.getNewPosition(currentX, currentY, prospectiveAngle, stepWidth);
+				isColliding = prospectivePosition == null
+						|| isColliding(prospectivePosition.getX(), prospectivePosition.getY(), candidates);
+				stepWidth += Properties.DISTANCE_INCREMENT;
+			}
+			if (isColliding && blockedMoveCache != null) {
+				blockedMoveCache.setBlocked(this.slot, prospectiveAction.getIndex(), currentX, currentY);
+			}
 		}
 
-		// in case of collision: give low reward
+		// in case of collision (with another skater or a wall): give low reward
 		if (isColliding) {
-			prospectiveAction.giveLowReward();
+			this.store.giveReward(this.slot, prospectiveAction.getIndex(), this.skatingRink.getLowReward());
 		}
 		// in case of no collision: update position and give high reward
 		else {
-			this.position = prospectivePosition;
-			prospectiveAction.giveHighReward();
+			this.store.setPosition(this.slot, prospectivePosition.getX(), prospectivePosition.getY());
+			if (blockedMoveCache != null) {
+				blockedMoveCache.moved(currentX, currentY, prospectivePosition.getX(), prospectivePosition.getY());
+			}
+			// distances follow the topology across the edges, so crossing an edge counts like any other movement
+			this.displacementSinceRebuild += prospectiveDistance;
+			this.store.giveReward(this.slot, prospectiveAction.getIndex(), this.skatingRink.getHighReward());
+		}
+
+		if (this.skatingRink.isStateAwareLearning()) {
+			float reward = isColliding ? this.skatingRink.getLowReward() : this.skatingRink.getHighReward();
+			this.skatingRink.getQTable().update(this.slot, state, prospectiveAction.getIndex(), reward,
+					senseState(getX(), getY(), candidates));
 		}
 
-		updateMeanPayoffs(simRound);
+		this.store.updateMeanPayoffs(this.slot, simRound);
 	}
 
 	/**
-	 * Chooses an action based on a list of available actions for a pre-defined ratio of exploration and exploitation.
+	 * Gets all skaters the skater may collide with: the neighbour list, if enabled, or all skaters. The skater itself
+	 * may be part of the list and is skipped by the collision checks.
+	 *
+	 * @return the skaters to check for collisions
+	 */
+	private List<Skater> getCollisionCandidates() {
+		return this.skatingRink.isNeighbourLists() ? this.neighbours : this.skatingRink.getSkatersBySlot();
+	}
+
+	/**
+	 * Chooses an action based on the cumulated payoffs of the available actions for a pre-defined ratio of exploration
+	 * and exploitation.
 	 *
-	 * @param actions
-	 * 			list of available actions
 	 * @param simRound
 	 * 			the current simulation round
-	 * @return the chosen action
+	 * @return the index of the chosen action
 	 */
-	private Action chooseAction(List<Action> actions, int simRound) {
-		Random rand = new Random();
+	private int chooseActionIndex(int simRound) {
+		Random rand = skatingRink.getRandom();
 
 		// in the beginning or in epsilon % of the cases: play a random action (explore)
-		if (simRound <= 1 || rand.nextDouble() <= Properties.EPSILON_GREEDY) {
-			Collections.shuffle(actions);
+		if (simRound <= 1 || rand.nextDouble() <= this.skatingRink.getEpsilon()) {
+			// first action of a shuffled list of actions, ordered by angle (same draws as Collections.shuffle)
+			int[] actionIndices = new int[Properties.ACTION_COUNT];
+			for (int i = 0; i < actionIndices.length; i++) {
+				actionIndices[i] = i;
+			}
+			for (int i = actionIndices.length; i > 1; i--) {
+				int j = rand.nextInt(i);
+				int swap = actionIndices[i - 1];
+				actionIndices[i - 1] = actionIndices[j];
+				actionIndices[j] = swap;
+			}
+			return actionIndices[0];
 		}
 
 		// in 1-epsilon % of the case choose action with highest payoff (exploit)
-		else {
-			Collections.sort(actions);
+		return this.store.getBestAction(this.slot);
+	}
+
+	/**
+	 * Chooses an action based on the Q-values of the current state for a pre-defined ratio of exploration and
+	 * exploitation.
+	 *
+	 * @param state
+	 * 			the current state
+	 * @param simRound
+	 * 			the current simulation round
+	 * @return the index of the chosen action
+	 */
+	int chooseActionIndex(int state, int simRound) {
+		Random rand = skatingRink.getRandom();
+
+		// in the beginning or in epsilon % of the cases: play a random action (explore)
+		if (simRound <= 1 || rand.nextDouble() <= this.skatingRink.getEpsilon()) {
+			return rand.nextInt(Properties.ACTION_COUNT);
 		}
 
-		return actions.get(0);
+		// in 1-epsilon % of the case choose action with highest Q-value (exploit)
+		return this.skatingRink.getQTable().getBestAction(this.slot, state);
+	}
+
+	/**
+	 * Determines the state of the skater as bitmask of the occupied sectors around a given position. There is one
+	 * sector per action, centered around the angle of the action, and a sector is occupied if another skater is located
+	 * in it within the sensing radius.
+	 *
+	 * @param x
+	 * 			the x-coordinate to sense from
+	 * @param y
+	 * 			the y-coordinate to sense from
+	 * @param skaters
+	 * 			skaters to sense, the skater itself is skipped
+	 * @return the bitmask of occupied sectors
+	 */
+	int senseState(double x, double y, List<Skater> skaters) {
+		Topology topology = this.skatingRink.getTopology();
+		int state = 0;
+		Iterator<Skater> skatersIt = skaters.iterator();
+		while (skatersIt.hasNext()) {
+			Skater other = skatersIt.next();
+			if (other != this && getSquaredDistance(x, y, other) < SQUARED_SENSING_RADIUS) {
+				double angle = topology.direction(x, y, other.getX(), other.getY());
+				int sector = (int) Math.round(angle / Properties.BASE_ANGLE);
+				state |= 1 << ((sector % Properties.ACTION_COUNT + Properties.ACTION_COUNT) % Properties.ACTION_COUNT);
+			}
+		}
+		return state;
 	}
 
 	/**
 	 * Check if the player is colliding with another player. This is defined by a collision radius / threshold
-	 * of the distance between two skaters.
+	 * of the shortest distance between two skaters, according to the topology of the skating rink.
 	 *
-	 * @param position
-	 * 			position of the skater
+	 * @param x
+	 * 			x-coordinate of the skater
+	 * @param y
+	 * 			y-coordinate of the skater
 	 * @param skaters
-	 * 			skaters to compare with
+	 * 			skaters to compare with, the skater itself is skipped
 	 * @return true if the position of the skater lies within the collision radius of another skater, false otherwise
 	 */
-	private boolean isColliding(Position position, List<Skater> skaters) {
+	private boolean isColliding(double x, double y, List<Skater> skaters) {
 		boolean collision = false;
 
-		// test for all skaters, if the position of the two skater lie within the collision radius
+		// test for all other skaters, if the position of the two skater lie within the collision radius
 		Iterator<Skater> skatersIt = skaters.iterator();
 		while (skatersIt.hasNext() && !collision) {
 			Skater skater = skatersIt.next();
-			// calculation based on Pythagoras' theorem
-			collision = (Math.sqrt(Math.pow(position.getX() - skater.getPosition().getX(), 2)
-					+ Math.pow(position.getY() - skater.getPosition().getY(), 2)))
-					< Properties.COLLISION_RADIUS;
+			collision = skater != this && getSquaredDistance(x, y, skater) < SQUARED_COLLISION_RADIUS;
 		}
 		return collision;
 	}
 
 	/**
-	 * Updates the mean payoffs for all actions.
+	 * Calculates the squared shortest distance between a position and a skater, according to the topology of the
+	 * skating rink.
 	 *
-	 * @param simRound
-	 * 			the current simulation round
+	 * @param x
+	 * 			the x-coordinate of the position
+	 * @param y
+	 * 			the y-coordinate of the position
+	 * @param skater
+	 * 			the skater
+	 * @return the squared distance between the position and the skater
 	 */
-	private void updateMeanPayoffs(int simRound) {
-		Iterator<Action> actionsIt = this.availableActions.iterator();
-		while (actionsIt.hasNext()) {
-			Action action = actionsIt.next();
-			action.updateMeanPayoff(simRound);
-		}
+	private double getSquaredDistance(double x, double y, Skater skater) {
+		return this.skatingRink.getTopology().squaredDistance(x, y, skater.getX(), skater.getY());
 	}
 
 	/**
-	 * Gets the cumulated payoff of the skater for a given angle.
+	 * Rebuilds the verlet neighbour list, containing all other skaters within the given radius, and resets the
+	 * accumulated displacement. As long as no skater moved further than the skin of the radius allows, collision
+	 * checks against the neighbour list are equivalent to checks against all other skaters.
 	 *
-	 * @param angle
-	 * 			the angle of the cumulated payoff
-	 * @return the cumulated payoff of the skater for the given angle
-	 */
-	public int getCumulatedPayoffForAngle(int angle) {
-		Iterator<Action> actionsIt = this.availableActions.iterator();
-		while (actionsIt.hasNext()) {
-			Action action = actionsIt.next();
-			if (action.getAngle() == angle) {
-				return action.getCumulatedPayoff();
+	 * Only the skaters in the cell of the skater and its adjacent cells are checked, so the cells must be at least as
+	 * large as the radius.
+	 *
+	 * @param radius
+	 * 			the radius of the neighbour list
+	 * @param grid
+	 * 			the grid of cells
+	 * @param skatersPerCell
+	 * 			the skaters located in each cell of the grid
+	 */
+	public void rebuildNeighbourList(double radius, CellGrid grid, List<List<Skater>> skatersPerCell) {
+		this.neighbours = new ArrayList<Skater>();
+		double x = getX();
+		double y = getY();
+		int[] neighbourhood = grid.getNeighbourhood(grid.getCell(x, y));
+		for (int i = 0; i < neighbourhood.length; i++) {
+			Iterator<Skater> skatersIt = skatersPerCell.get(neighbourhood[i]).iterator();
+			while (skatersIt.hasNext()) {
+				Skater skater = skatersIt.next();
+				if (skater != this && getSquaredDistance(x, y, skater) < radius * radius) {
+					this.neighbours.add(skater);
+				}
 			}
 		}
-		return 0;
+		this.displacementSinceRebuild = 0.0;
 	}
 
 	/**
-	 * Gets the meam payoff of the skater for a given angle.
+	 * Gets the cumulated payoffs of the skater for all angles.
 	 *
-	 * @param angle
-	 * 			the angle of the mean payoff
-	 * @return the mean payoff of the skater for the given angle
-	 */
-	public double getMeanPayoffForAngle(int angle) {
-		Iterator<Action> actionsIt = this.availableActions.iterator();
-		while (actionsIt.hasNext()) {
-			Action action = actionsIt.next();
-			if (action.getAngle() == angle) {
-				return action.getMeanPayoff();
-			}
+	 * @param payoffs
+	 * 			the array to fill with the cumulated payoffs, ordered by angle
+	 */
+	public void getCumulatedPayoffs(int[] payoffs) {
+		for (int i = 0; i < Properties.ACTION_COUNT; i++) {
+			payoffs[i] = this.store.getCumulatedPayoff(this.slot, i);
 		}
-		return 0;
 	}
 
 	/**
-	 * @return the availableActions
+	 * Gets the cumulated payoff of the skater for an action.
+	 *
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the cumulated payoff of the skater for the action
+	 */
+	public int getCumulatedPayoff(int actionIndex) {
+		return this.store.getCumulatedPayoff(this.slot, actionIndex);
+	}
+
+	/**
+	 * Gets the mean payoff of the skater for an action.
+	 *
+	 * @param actionIndex
+	 * 			the action index
+	 * @return the mean payoff of the skater for the action
+	 */
+	public double getMeanPayoff(int actionIndex) {
+		return this.store.getMeanPayoff(this.slot, actionIndex);
+	}
+
+	/**
+	 * @return the index of the skater within the population
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the row of the skater within the storage of the population (Q-table, off-heap store, caches)
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Moves the skater to another row within the storage of the population. The storage itself must be permuted
+	 * accordingly (see {@link SkatingRink#reorderSkaters()}).
+	 *
+	 * @param slot
+	 * 			the new row of the skater
+	 */
+	void setSlot(int slot) {
+		this.slot = slot;
+	}
+
+	/**
+	 * @return the distance moved since the last rebuild of the neighbour list
 	 */
-	public List<Action> getAvailableActions() {
-		return availableActions;
+	public double getDisplacementSinceRebuild() {
+		return displacementSinceRebuild;
 	}
 
 	/**
-	 * @return the position of the skater
+	 * @return the position of the skater, as a new object (use {@link #getX()} and {@link #getY()} in hot paths)
 	 */
 	public Position getPosition() {
-		return position;
+		return new Position(store.getX(slot), store.getY(slot));
+	}
+
+	/**
+	 * @return the x-coordinate of the skater
+	 */
+	public double getX() {
+		return store.getX(slot);
+	}
+
+	/**
+	 * @return the y-coordinate of the skater
+	 */
+	public double getY() {
+		return store.getY(slot);
 	}
 
 }
@@ -1,6 +1,7 @@
 package nl.uu.mal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -8,6 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.logging.Logger;
 
 import org.jfree.data.xy.XYSeries;
@@ -15,11 +17,9 @@ import org.jfree.data.xy.XYSeries;
 
 /**
  * Class representing a skating rink in which {@link Skater} can move around. The skating rink defines the shape and dimensions
- * of the surface. In this case it represents a torus that is created from a rectangular surface (for more details, see:
- * https://commons.wikimedia.org/wiki/File:Torus_from_rectangle.gif). For a more generic approach this class can be easily
- * transformed into an abstract class with implementations representing different shapes. In this case only the function
- * "getNewPosition" must be implemented according to the various shapes. This has been left out, due to simplicity, readability
- * and the fact that the assignment focuses only on this simplified version of a torus.
+ * of the surface. The surface is created from a rectangle, whose shape is defined by a {@link Topology} (see
+ * Properties.RINK_SHAPE). By default it represents a torus (for more details, see:
+ * https://commons.wikimedia.org/wiki/File:Torus_from_rectangle.gif).
  *
  * @author h.nunner
  */
@@ -31,44 +31,187 @@ public class SkatingRink {
 	// parameters
 	private int width;
 	private int height;
-	private List<Skater> skaters;
+	private Topology topology;
+	private Random random;
+	private List<Skater> skaters;							// in order of activation
+	private List<Skater> skatersBySlot;						// in order of storage (see Properties.REORDER_INTERVAL)
+	private boolean neighbourLists;							// see Properties.NEIGHBOUR_LISTS
+	private CellGrid neighbourGrid;							// for rebuilding the neighbour lists
+	private boolean neighbourListsStale;
+	private int skaterCount;
+	private QTable qTable;									// state-aware learning (see Properties.STATE_AWARE_LEARNING)
+	private PopulationStore populationStore;				// position and payoffs (see Properties.OFF_HEAP_STORE)
+	private BlockedMoveCache blockedMoveCache;				// see Properties.BLOCKED_MOVE_CACHE
+	private int currentRound;								// last simulated round
+	private int plannedRounds;								// last round of the simulation, 0 = of each run
+
+	// behavior, may differ between forks (see Variant)
+	private double epsilon;
+	private int highReward;
+	private int lowReward;
 
 	// logging of payoffs
 	// TODO: extract to external payoff logger class
 	private Map<Integer, XYSeries> payoffsPerAngle;			// key: different angles of the actions,
 															// value: mean payoffs for all skaters over time
-	private StringBuilder payoffsPerSkater;					// quick and easy way to generate csv-file for payoffs
-															// per skater over time
+	private PayoffHistory payoffHistory;					// cumulated payoffs per skater over time (null = disabled)
+	private int[] payoffsBuffer;							// reused for recording payoffs of a single skater
+	private OutputSampler outputSampler;					// rounds and skaters to record
 
 	/**
 	 * Eagerly initialized singleton.
 	 */
 	// constant
-	private static final SkatingRink instance = new SkatingRink(Properties.TORUS_WIDTH, Properties.TORUS_HEIGHT);
+	private static final SkatingRink instance = new SkatingRink(Properties.RINK_SHAPE, Properties.TORUS_WIDTH,
+			Properties.TORUS_HEIGHT, new Random());
 	// private constructor
-	private SkatingRink(int width, int height) {
+	private SkatingRink(String shape, int width, int height, Random random) {
 		this.width = width;
 		this.height = height;
+		this.topology = Topology.create(shape, width, height);
+		this.random = random;
 		this.skaters = new ArrayList<Skater>();
+		this.skatersBySlot = new ArrayList<Skater>();
+		this.neighbourLists = Properties.NEIGHBOUR_LISTS;
+		this.neighbourListsStale = true;
+		this.skaterCount = 0;
+		this.currentRound = 0;
+		this.plannedRounds = 0;
+		this.epsilon = Properties.EPSILON_GREEDY;
+		this.highReward = Properties.HIGH_REWARD;
+		this.lowReward = Properties.LOW_REWARD;
+		if (Properties.STATE_AWARE_LEARNING) {
+			this.qTable = new QTable(0);
+		}
+		if (Properties.BLOCKED_MOVE_CACHE) {
+			this.blockedMoveCache = new BlockedMoveCache(this.topology,
+					Properties.COLLISION_RADIUS + Properties.STD_DISTANCE);
+		}
+		this.populationStore = PopulationStore.createDefault();
 		this.initPayoffStorages();
 	}
+	// constructor for forks
+	private SkatingRink(SkatingRink parent, Variant variant) {
+		this.width = parent.width;
+		this.height = parent.height;
+		this.topology = parent.topology;
+		this.random = new Random(variant.getSeed());
+		this.neighbourLists = parent.neighbourLists;
+		this.neighbourGrid = parent.neighbourGrid;
+		this.neighbourListsStale = true;
+		this.skaterCount = parent.skaterCount;
+		this.currentRound = parent.currentRound;
+		// the runs of a fork are planned independently of the original
+		this.plannedRounds = 0;
+		this.epsilon = variant.getEpsilon();
+		this.highReward = variant.getHighReward();
+		this.lowReward = variant.getLowReward();
+		if (parent.qTable != null) {
+			this.qTable = parent.qTable.fork();
+		}
+		if (parent.blockedMoveCache != null) {
+			// an empty cache is consistent, it only needs to learn the blocked movements again
+			this.blockedMoveCache = new BlockedMoveCache(this.topology,
+					Properties.COLLISION_RADIUS + Properties.STD_DISTANCE);
+		}
+		this.populationStore = parent.populationStore.fork();
+
+		// skaters, in order of activation and in order of storage
+		this.skaters = new ArrayList<Skater>();
+		Skater[] skatersBySlot = new Skater[parent.skatersBySlot.size()];
+		Iterator<Skater> skatersIt = parent.skaters.iterator();
+		while (skatersIt.hasNext()) {
+			Skater skater = new Skater(this, skatersIt.next());
+			this.skaters.add(skater);
+			skatersBySlot[skater.getSlot()] = skater;
+		}
+		this.skatersBySlot = new ArrayList<Skater>(Arrays.asList(skatersBySlot));
+
+		// mean payoffs per angle so far, history from the fork on
+		this.payoffsPerAngle = new HashMap<Integer, XYSeries>();
+		Iterator<Entry<Integer, XYSeries>> payoffsIt = parent.payoffsPerAngle.entrySet().iterator();
+		while (payoffsIt.hasNext()) {
+			Entry<Integer, XYSeries> payoff = payoffsIt.next();
+			XYSeries series = new XYSeries(payoff.getValue().getKey());
+			for (int i = 0; i < payoff.getValue().getItemCount(); i++) {
+				series.add(payoff.getValue().getX(i), payoff.getValue().getY(i));
+			}
+			this.payoffsPerAngle.put(payoff.getKey(), series);
+		}
+		if (parent.payoffHistory != null) {
+			this.payoffHistory = new PayoffHistory(Properties.HISTORY_RETAINED_ROUNDS,
+					Properties.HISTORY_BLOCK_RECORDS);
+		}
+		this.payoffsBuffer = new int[Properties.ACTION_COUNT];
+		// the history of the fork starts empty, so the payoffs recorded by the original must not suppress changes
+		this.outputSampler = parent.outputSampler.copyRules();
+	}
 	// getter
 	public static SkatingRink getInstance() {
 		return instance;
 	}
 
+	/**
+	 * Creates a new, independent skating rink with a seeded random number generator, e.g. for replicas of a simulation.
+	 *
+	 * @param width
+	 * 			the width of the skating rink
+	 * @param height
+	 * 			the height of the skating rink
+	 * @param seed
+	 * 			the seed for all random decisions within the skating rink
+	 * @return the new skating rink
+	 */
+	public static SkatingRink createInstance(int width, int height, long seed) {
+		return createInstance(Properties.RINK_SHAPE, width, height, seed);
+	}
+
+	/**
+	 * Creates a new, independent skating rink of a given shape with a seeded random number generator.
+	 *
+	 * @param shape
+	 * 			the shape of the skating rink (see {@link Topology#create(String, int, int)})
+	 * @param width
+	 * 			the width of the skating rink
+	 * @param height
+	 * 			the height of the skating rink
+	 * @param seed
+	 * 			the seed for all random decisions within the skating rink
+	 * @return the new skating rink
+	 */
+	public static SkatingRink createInstance(String shape, int width, int height, long seed) {
+		return new SkatingRink(shape, width, height, new Random(seed));
+	}
+
+	/**
+	 * Forks the skating rink into an independent variant, continuing from the last simulated round. The positions and
+	 * payoffs of the skaters (see {@link PopulationStore#fork()}) and the Q-table are shared with the original through
+	 * copy-on-write pages, so the original and any number of forks can be simulated concurrently afterwards. The mean
+	 * payoffs per angle of the rounds so far are copied, the payoff history of a fork starts with the round after the
+	 * fork.
+	 *
+	 * @param variant
+	 * 			the parameters of the fork
+	 * @return the fork
+	 */
+	public SkatingRink fork(Variant variant) {
+		return new SkatingRink(this, variant);
+	}
+
 
 	/**
 	 * Initialization of the payoff storages, based on the different angles of actions.
 	 */
 	private void initPayoffStorages() {
 		this.payoffsPerAngle = new HashMap<Integer, XYSeries>();
-		Iterator<Action> actionsIt = Action.createAvailableActions().iterator();
+		Iterator<Action> actionsIt = Action.getAvailableActions().iterator();
 		while (actionsIt.hasNext()) {
 			int angle = actionsIt.next().getAngle();
 			this.payoffsPerAngle.put(angle, new XYSeries(String.valueOf(angle + "°")));
 		}
-		payoffsPerSkater = new StringBuilder();
+		this.payoffHistory = new PayoffHistory(Properties.HISTORY_RETAINED_ROUNDS, Properties.HISTORY_BLOCK_RECORDS);
+		this.payoffsBuffer = new int[Properties.ACTION_COUNT];
+		this.outputSampler = OutputSampler.createDefault();
 	}
 
 	/**
@@ -79,27 +222,187 @@ public class SkatingRink {
 	}
 
 	/**
-	 * Simulates movement of skaters for an arbitrary number of rounds.
+	 * Simulates movement of skaters for an arbitrary number of rounds, continuing from the last simulated round. The
+	 * last round of the run is always recorded (see {@link OutputSampler#isRoundSampled(int, int)}), unless the
+	 * simulation is planned to continue afterwards (see {@link #setPlannedRounds(int)}).
 	 *
 	 * @param rounds
 	 * 			number of rounds to be simulated
 	 */
 	public void letThemSkate(int rounds) {
+		int lastRound = this.currentRound + rounds;
+		int lastRecordedRound = Math.max(lastRound, this.plannedRounds);
 		// iteration over number of rounds
-		for (int simRound = 1; simRound <= rounds; simRound++) {
+		for (int simRound = this.currentRound + 1; simRound <= lastRound; simRound++) {
+			this.currentRound = simRound;
+			boolean roundSampled = outputSampler.isRoundSampled(simRound, lastRecordedRound);
 			// asynchronous simulation of movement for each skater
 			Iterator<Skater> skatersIt = skaters.iterator();
 			int skaterIndex = 0;
 			while (skatersIt.hasNext()) {
 				Skater skater = skatersIt.next();
+				if (this.neighbourLists) {
+					refreshNeighbourLists();
+				}
 				skater.move(simRound);
-				updatePayoffsPerSkater(simRound, skaterIndex++, skater);
+				// lists are only valid, as long as no skater moved further than half of skin and standard distance
+				if (this.neighbourLists && skater.getDisplacementSinceRebuild()
+						> (Properties.NEIGHBOUR_SKIN + Properties.STD_DISTANCE) / 2.0) {
+					this.neighbourListsStale = true;
+				}
+				if (roundSampled && payoffHistory != null && outputSampler.isSkaterSampled(skaterIndex)) {
+					updatePayoffsPerSkater(simRound, skaterIndex, skater);
+				}
+				skaterIndex++;
+			}
+			if (roundSampled) {
+				updateMeanPayoffsPerAngle(simRound);
+			}
+			if (isReorderRound(simRound)) {
+				reorderSkaters();
 			}
-			updateMeanPayoffsPerAngle(simRound);
 		}
 	}
+
 	/**
-	 * Appending payoffs per skater.
+	 * Checks whether the storage of the skaters is reordered after a simulation round (see
+	 * Properties.REORDER_INTERVAL). Reordering is limited to runs with neighbour lists, as only these access the state
+	 * of skaters close to each other on the surface together (see {@link #reorderSkaters()}).
+	 *
+	 * @param simRound
+	 * 			the simulation round
+	 * @return true if the storage is reordered, false otherwise
+	 */
+	private boolean isReorderRound(int simRound) {
+		// not a constant expression, so the default interval of 0 does not compile into a division by zero
+		int reorderInterval = Properties.REORDER_INTERVAL;
+		return this.neighbourLists && reorderInterval > 0 && simRound % reorderInterval == 0;
+	}
+
+	/**
+	 * Reorders the storage of the skaters (Q-table, off-heap store, cache of blocked movements) along a Morton curve of
+	 * their positions, so that skaters close to each other on the surface are also close to each other in memory.
+	 * Collision queries iterate the skaters in this order. The order of activation and the skater indices used in all
+	 * outputs stay unchanged.
+	 *
+	 * The benefit is limited to large populations with neighbour lists, where the neighbours of a skater then share
+	 * pages and cache lines, and is largest for the Q-table with its large rows per skater. Without neighbour lists,
+	 * collision queries scan all skaters in order of storage anyway, and small populations fit into the caches
+	 * completely. Each reordering costs a sort and a pass over the state of all skaters, permuted in place.
+	 */
+	public void reorderSkaters() {
+		final long[] codes = new long[this.skatersBySlot.size()];
+		Iterator<Skater> skatersIt = this.skatersBySlot.iterator();
+		while (skatersIt.hasNext()) {
+			Skater skater = skatersIt.next();
+			codes[skater.getSlot()] = getMortonCode(skater.getX(), skater.getY());
+		}
+		Collections.sort(this.skatersBySlot, new Comparator<Skater>() {
+			public int compare(Skater o1, Skater o2) {
+				return Long.compare(codes[o1.getSlot()], codes[o2.getSlot()]);
+			}
+		});
+
+		// new slot per current slot
+		int[] slots = new int[this.skatersBySlot.size()];
+		for (int i = 0; i < slots.length; i++) {
+			slots[this.skatersBySlot.get(i).getSlot()] = i;
+		}
+		if (this.qTable != null) {
+			this.qTable.permute(slots);
+		}
+		this.populationStore.permute(slots);
+		if (this.blockedMoveCache != null) {
+			this.blockedMoveCache.permute(slots);
+		}
+		for (int i = 0; i < slots.length; i++) {
+			this.skatersBySlot.get(i).setSlot(i);
+		}
+	}
+
+	/**
+	 * Calculates the position of a point along a Morton (Z-order) curve, by interleaving the bits of its coordinates,
+	 * each scaled to 16 bits.
+	 *
+	 * @param x
+	 * 			the x-coordinate
+	 * @param y
+	 * 			the y-coordinate
+	 * @return the position along the curve
+	 */
+	private long getMortonCode(double x, double y) {
+		return spreadBits((int) Math.min(0xFFFF, Math.max(0, x / this.width * 0x10000)))
+				| (spreadBits((int) Math.min(0xFFFF, Math.max(0, y / this.height * 0x10000))) << 1);
+	}
+
+	/**
+	 * Spreads the lower 16 bits of a value to the even bits of the result.
+	 *
+	 * @param value
+	 * 			the value
+	 * @return the value with a zero bit inserted before each bit
+	 */
+	private static long spreadBits(int value) {
+		long bits = value & 0xFFFFL;
+		bits = (bits | (bits << 8)) & 0x00FF00FFL;
+		bits = (bits | (bits << 4)) & 0x0F0F0F0FL;
+		bits = (bits | (bits << 2)) & 0x33333333L;
+		bits = (bits | (bits << 1)) & 0x55555555L;
+		return bits;
+	}
+
+	/**
+	 * Rebuilds the neighbour lists of all skaters, if any skater moved far enough to invalidate them. The radius of the
+	 * lists covers the collision radius, the skin and twice the standard distance: the prospective movement of the
+	 * skater itself, plus a margin allowing each skater to move up to half of skin and standard distance between
+	 * two rebuilds. With state-aware learning, the lists also cover the sensing radius around the position after the
+	 * movement, which lies up to another standard distance away.
+	 *
+	 * The skaters are sorted into a grid of cells at least as large as the radius first, so each skater only checks
+	 * the skaters in the adjacent cells, and a rebuild takes time linear in the number of skaters.
+	 */
+	private void refreshNeighbourLists() {
+		if (!this.neighbourListsStale) {
+			return;
+		}
+		double radius = getNeighbourListRadius();
+		if (this.neighbourGrid == null) {
+			this.neighbourGrid = new CellGrid(this.topology, radius);
+		}
+
+		// skaters per cell, in order of storage
+		List<List<Skater>> skatersPerCell = new ArrayList<List<Skater>>(this.neighbourGrid.getCellCount());
+		for (int i = 0; i < this.neighbourGrid.getCellCount(); i++) {
+			skatersPerCell.add(new ArrayList<Skater>());
+		}
+		Iterator<Skater> skatersIt = this.skatersBySlot.iterator();
+		while (skatersIt.hasNext()) {
+			Skater skater = skatersIt.next();
+			skatersPerCell.get(this.neighbourGrid.getCell(skater.getX(), skater.getY())).add(skater);
+		}
+
+		skatersIt = this.skatersBySlot.iterator();
+		while (skatersIt.hasNext()) {
+			skatersIt.next().rebuildNeighbourList(radius, this.neighbourGrid, skatersPerCell);
+		}
+		this.neighbourListsStale = false;
+	}
+
+	/**
+	 * Gets the radius of the neighbour lists (see {@link #refreshNeighbourLists()}).
+	 *
+	 * @return the radius of the neighbour lists
+	 */
+	private double getNeighbourListRadius() {
+		double reach = Properties.COLLISION_RADIUS;
+		if (isStateAwareLearning()) {
+			reach = Math.max(reach, Properties.SENSING_RADIUS + Properties.STD_DISTANCE);
+		}
+		return reach + Properties.NEIGHBOUR_SKIN + 2 * Properties.STD_DISTANCE;
+	}
+
+	/**
+	 * Records payoffs per skater, unless only changes are recorded and the payoffs did not change.
 	 *
 	 * @param simRound
 	 * 			the simulation round
@@ -109,32 +412,10 @@ public class SkatingRink {
 	 * 			the skater, including the payoffs per action
 	 */
 	private void updatePayoffsPerSkater(int simRound, int skaterIndex, Skater skater) {
-		// append simulation round and skater
-		payoffsPerSkater.append(simRound).append(",").append(skaterIndex).append(",");
-
-		// sort by angle
-		// TODO: extract to Action and generalize sorting with different {@link Comparator}s
-		List<Action> availableActions = skater.getAvailableActions();
-		Collections.sort(availableActions, new Comparator<Action>() {
-			public int compare(Action o1, Action o2) {
-				if (o1.getAngle() <= o2.getAngle()) {
-					return -1;
-				} else {
-					return 1;
-				}
-			}
-		});
-
-		// append payoffs for different angles
-		Iterator<Action> actionsIt = availableActions.iterator();
-		while (actionsIt.hasNext()) {
-			Action action = actionsIt.next();
-			payoffsPerSkater.append(action.getCumulatedPayoff());
-			if (actionsIt.hasNext()) {
-				payoffsPerSkater.append(",");
-			} else {
-				payoffsPerSkater.append("\n");
-			}
+		// record payoffs for different angles
+		skater.getCumulatedPayoffs(payoffsBuffer);
+		if (outputSampler.isChangeSampled(skaterIndex, payoffsBuffer)) {
+			payoffHistory.record(simRound, skaterIndex, payoffsBuffer);
 		}
 	}
 
@@ -158,11 +439,11 @@ public class SkatingRink {
 			skatersIt = skaters.iterator();
 			while (skatersIt.hasNext()) {
 				Skater skater = skatersIt.next();
-				meanPayoffPerAngle += skater.getMeanPayoffForAngle(payoff.getKey());
+				meanPayoffPerAngle += skater.getMeanPayoff(payoff.getKey() / Properties.BASE_ANGLE);
 			}
 
 			// divide summed up mean payoffs by number of skaters
-			meanPayoffPerAngle = Double.valueOf(meanPayoffPerAngle) / Double.valueOf(Properties.PLAYER_COUNT);
+			meanPayoffPerAngle = Double.valueOf(meanPayoffPerAngle) / Double.valueOf(skaters.size());
 			// add mean payoff over all skaters and specific angle for the current simulation round
 			payoff.getValue().add(simRound, meanPayoffPerAngle);
 		}
@@ -171,54 +452,49 @@ public class SkatingRink {
 
 	/**
 	 * Calculates new position within the skating rink, based on a current position, the angle of movement and the distance.
-	 * The calculation is based on the shape and layout of the skating rink. In this case it is a simple torus constructed
-	 * out of a rectangular, two-dimensional shape.
+	 * The calculation is based on the shape and layout of the skating rink, as defined by its {@link Topology}.
 	 *
-	 * @param currentPosition
-	 * 			the skater's current position
+	 * @param x
+	 * 			the skater's current x-coordinate
+	 * @param y
+	 * 			the skater's current y-coordinate
 	 * @param angle
 	 * 			the angle of movement
 	 * @param distance
 	 * 			the distance of movement
-	 * @return the new position of the skater
+	 * @return the new position of the skater, or null if the new position cannot be reached (e.g. behind a wall)
 	 */
-	public Position getNewPosition(Position currentPosition, int angle, double distance) {
+	public Position getNewPosition(double x, double y, int angle, double distance) {
 		double radAngle = Math.toRadians(angle);
 
-		// new x-coordinate
-		double newX = (Math.cos(radAngle) * distance) + currentPosition.getX();
-		// wrap around, if skater skates out of bounds
-		if (newX >= this.width) {
-			newX = newX - this.width;
-		}
-		if (newX < 0) {
-			newX = newX + this.width;
-		}
-
-		// new y-coordinate
-		double newY = Math.sin(radAngle) * distance + currentPosition.getY();
-		// wrap around, if skater skates out of bounds
-		if (newY >= this.height) {
-			newY = newY - this.height;
-		}
-		if (newY < 0) {
-			newY = newY + this.height;
-		}
+		// new coordinates, wrapped around according to the topology, if skater skates out of bounds
+		double newX = (Math.cos(radAngle) * distance) + x;
+		double newY = Math.sin(radAngle) * distance + y;
+		return this.topology.wrap(newX, newY);
+	}
 
-		return new Position(newX, newY);
+	/**
+	 * Gets all skaters in order of storage, e.g. for collision queries. The list is not copied: it must not be
+	 * modified, and it includes the querying skater itself.
+	 *
+	 * @return the skaters, in order of storage
+	 */
+	public List<Skater> getSkatersBySlot() {
+		return skatersBySlot;
 	}
 
 	/**
-	 * Gets all skaters except the one handed in as parameter.
+	 * Assigns the index of a new skater within the population.
 	 *
-	 * @param skater
-	 * 			skater being excluded
-	 * @return list of all skaters, excluding the skater handed in as parameter
+	 * @return the index for the new skater
 	 */
-	public List<Skater> getOtherSkaters(Skater skater) {
-		List<Skater> otherSkaters = new ArrayList<Skater>(skaters);
-		otherSkaters.remove(skater);
-		return otherSkaters;
+	public int nextSkaterIndex() {
+		int index = this.skaterCount++;
+		if (this.qTable != null) {
+			this.qTable.ensureCapacity(this.skaterCount);
+		}
+		this.populationStore.ensureCapacity(this.skaterCount);
+		return index;
 	}
 
 	/**
@@ -236,6 +512,149 @@ public class SkatingRink {
 	 */
 	public void addSkater(Skater skater) {
 		this.skaters.add(skater);
+		this.skatersBySlot.add(skater);
+		this.neighbourListsStale = true;
+		if (this.blockedMoveCache != null) {
+			this.blockedMoveCache.added(skater.getX(), skater.getY());
+		}
+	}
+
+	/**
+	 * @return the Q-table of the population, or null if state-aware learning is disabled
+	 */
+	public QTable getQTable() {
+		return qTable;
+	}
+
+	/**
+	 * @return true if the skaters learn on the occupied sectors around them, false otherwise
+	 */
+	public boolean isStateAwareLearning() {
+		return qTable != null;
+	}
+
+	/**
+	 * Sets whether the skaters learn on the occupied sectors around them (see Properties.STATE_AWARE_LEARNING). Must be
+	 * set before the simulation starts, as enabling starts with an empty Q-table. Forks of the skating rink inherit the
+	 * setting.
+	 *
+	 * @param stateAwareLearning
+	 * 			true for state-aware learning, false otherwise
+	 */
+	public void setStateAwareLearning(boolean stateAwareLearning) {
+		if (stateAwareLearning != isStateAwareLearning()) {
+			this.qTable = stateAwareLearning ? new QTable(this.skaterCount) : null;
+			// the neighbour lists must cover the sensing radius as well
+			this.neighbourGrid = null;
+			this.neighbourListsStale = true;
+		}
+	}
+
+	/**
+	 * @return the store of the population, holding position and payoffs of all skaters
+	 */
+	public PopulationStore getPopulationStore() {
+		return populationStore;
+	}
+
+	/**
+	 * Releases all resources held outside of the heap, i.e. the files backing the payoff history and the population
+	 * store. The skating rink must not be used afterwards.
+	 */
+	public void close() {
+		if (this.payoffHistory != null) {
+			this.payoffHistory.close();
+		}
+		this.populationStore.close();
+	}
+
+	/**
+	 * @return the random number generator for all random decisions within the skating rink
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * @return the last simulated round
+	 */
+	public int getCurrentRound() {
+		return currentRound;
+	}
+
+	/**
+	 * @return the last round of the whole simulation, or 0 if each run ends the simulation
+	 */
+	public int getPlannedRounds() {
+		return plannedRounds;
+	}
+
+	/**
+	 * Sets the last round of the whole simulation, if it is split into several runs of {@link #letThemSkate(int)}, e.g.
+	 * to fork variants in between. Only this round is then recorded in addition to the rounds sampled anyway, rather
+	 * than the last round of every run. A run continuing beyond the planned rounds records its own last round. Forks
+	 * of the skating rink do not inherit the planned rounds.
+	 *
+	 * @param plannedRounds
+	 * 			the last round of the simulation, or 0 to record the last round of every run
+	 */
+	public void setPlannedRounds(int plannedRounds) {
+		this.plannedRounds = plannedRounds;
+	}
+
+	/**
+	 * @return the ratio of exploration
+	 */
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * @return the reward for a movement without collision
+	 */
+	public int getHighReward() {
+		return highReward;
+	}
+
+	/**
+	 * @return the reward for a collision
+	 */
+	public int getLowReward() {
+		return lowReward;
+	}
+
+	/**
+	 * @return true if collisions are checked against verlet neighbour lists, false if against all skaters
+	 */
+	public boolean isNeighbourLists() {
+		return neighbourLists;
+	}
+
+	/**
+	 * Sets whether collisions are checked against verlet neighbour lists or against all skaters (see
+	 * Properties.NEIGHBOUR_LISTS). Both give the same results. Must be set before the simulation starts. Forks of the
+	 * skating rink inherit the setting.
+	 *
+	 * @param neighbourLists
+	 * 			true to use neighbour lists, false otherwise
+	 */
+	public void setNeighbourLists(boolean neighbourLists) {
+		this.neighbourLists = neighbourLists;
+		this.neighbourListsStale = true;
+	}
+
+	/**
+	 * @return the cache of blocked movements, or null if disabled
+	 */
+	public BlockedMoveCache getBlockedMoveCache() {
+		return blockedMoveCache;
+	}
+
+	/**
+	 * @return the topology
+	 */
+	public Topology getTopology() {
+		return topology;
 	}
 
 	/**
@@ -260,10 +679,31 @@ public class SkatingRink {
 	}
 
 	/**
-	 * @return the payoffsPerSkater
+	 * Sets the rules which rounds and skaters are recorded. Must be set before the simulation starts.
+	 *
+	 * @param outputSampler
+	 * 			the output sampler
+	 */
+	public void setOutputSampler(OutputSampler outputSampler) {
+		this.outputSampler = outputSampler;
+	}
+
+	/**
+	 * @return the payoffHistory, or null if disabled
 	 */
-	public StringBuilder getPayoffsPerSkater() {
-		return payoffsPerSkater;
+	public PayoffHistory getPayoffHistory() {
+		return payoffHistory;
+	}
+
+	/**
+	 * Disables the recording of payoffs per skater, e.g. for replicas of which only the mean payoffs per angle are
+	 * needed. Must be called before the simulation starts. Forks of the skating rink inherit the setting.
+	 */
+	public void disablePayoffHistory() {
+		if (this.payoffHistory != null) {
+			this.payoffHistory.close();
+			this.payoffHistory = null;
+		}
 	}
 
 }
@@ -0,0 +1,198 @@
+package nl.uu.mal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class representing a sweep over several parameter points, each simulated with replicas of different seeds until the
+ * mean payoffs per angle in the last round are known precisely enough.
+ *
+ * Replicas run on a fixed number of worker threads. Every point first gets a wave of a minimum number of replicas.
+ * After that, a point stops receiving replicas as soon as the confidence intervals of all its final mean payoffs are
+ * narrower than the target (sequential stopping), or once it reached the maximum number of replicas. Each free worker
+ * is given to the open point with the widest confidence interval, so the simulations go where they reduce the
+ * uncertainty most.
+ *
+ * Checking the confidence intervals after every finished replica and stopping at the first narrow one (optional
+ * stopping) makes it more likely than the nominal 1 - {@link Properties#CONFIDENCE_LEVEL} that a point stops with an
+ * interval that misses the true mean. The stopping rule therefore uses a stricter, Bonferroni-corrected level: the
+ * error probability is divided by the number of checks a point may go through at most (one per replica between the
+ * minimum and the maximum number of replicas). This is conservative, i.e. points may receive more replicas than
+ * strictly needed. The intervals reported after the sweep are the ones at the nominal level.
+ *
+ * Replica i of a point uses the seed baseSeed + i, as {@link Simulation#runReplicas(int, long)} does. Which replicas
+ * are run depends on the order in which they finish, so the number of replicas per point may differ between sweeps.
+ *
+ * @author h.nunner
+ */
+public class Sweep {
+
+	// parameters
+	private double targetHalfWidth;
+	private int minReplicas;
+	private int maxReplicas;
+	private int threads;
+	private long baseSeed;
+	private double stoppingLevel;						// confidence level corrected for the repeated checks
+
+	// parameter points
+	private List<SweepPoint> points;
+
+
+	/**
+	 * Constructor - creates a new, empty sweep.
+	 *
+	 * @param targetHalfWidth
+	 * 			the half width of the confidence intervals at which a point stops receiving replicas
+	 * @param minReplicas
+	 * 			the number of replicas per point before stopping is considered
+	 * @param maxReplicas
+	 * 			the maximum number of replicas per point
+	 * @param threads
+	 * 			the number of worker threads
+	 * @param baseSeed
+	 * 			the seed of the first replica of each point
+	 */
+	public Sweep(double targetHalfWidth, int minReplicas, int maxReplicas, int threads, long baseSeed) {
+		if (minReplicas < 2 || maxReplicas < minReplicas) {
+			throw new IllegalArgumentException("Invalid replica bounds: " + minReplicas + " - " + maxReplicas);
+		}
+		this.targetHalfWidth = targetHalfWidth;
+		this.minReplicas = minReplicas;
+		this.maxReplicas = maxReplicas;
+		this.threads = Math.max(1, threads);
+		this.baseSeed = baseSeed;
+		this.stoppingLevel = 1.0 - (1.0 - Properties.CONFIDENCE_LEVEL) / (maxReplicas - minReplicas + 1);
+		this.points = new ArrayList<SweepPoint>();
+	}
+
+	/**
+	 * Creates a sweep based on the parameters in {@link Properties}.
+	 *
+	 * @return the sweep
+	 */
+	public static Sweep createDefault() {
+		return new Sweep(Properties.REPLICA_TARGET_HALF_WIDTH, Properties.REPLICA_MIN_COUNT,
+				Properties.REPLICA_MAX_COUNT, Properties.REPLICA_THREADS, Properties.REPLICA_BASE_SEED);
+	}
+
+
+	/**
+	 * Adds a parameter point to the sweep.
+	 *
+	 * @param width
+	 * 			the width of the skating rink
+	 * @param height
+	 * 			the height of the skating rink
+	 * @param skaters
+	 * 			the number of skaters
+	 * @param rounds
+	 * 			the number of simulation rounds
+	 * @return the parameter point, holding the statistics once the sweep has run
+	 */
+	public SweepPoint addPoint(int width, int height, int skaters, int rounds) {
+		SweepPoint point = new SweepPoint(width, height, skaters, rounds);
+		this.points.add(point);
+		return point;
+	}
+
+	/**
+	 * Runs replicas until every point is either precise enough or has reached the maximum number of replicas.
+	 */
+	public void run() {
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		CompletionService<SimulationResult> completionService = new ExecutorCompletionService<SimulationResult>(executor);
+		Map<Future<SimulationResult>, SweepPoint> running = new HashMap<Future<SimulationResult>, SweepPoint>();
+		try {
+			while (true) {
+				// keep all workers busy
+				SweepPoint next;
+				while (running.size() < this.threads && (next = nextPoint()) != null) {
+					final SweepPoint point = next;
+					final long seed = this.baseSeed + point.launch();
+					Future<SimulationResult> future = completionService.submit(new Callable<SimulationResult>() {
+						public SimulationResult call() {
+							return Simulation.runSimulation(point.getWidth(), point.getHeight(), point.getSkaters(),
+									point.getRounds(), seed);
+						}
+					});
+					running.put(future, point);
+				}
+				if (running.isEmpty()) {
+					break;
+				}
+
+				// fold the next finished replica into its point
+				Future<SimulationResult> future = completionService.take();
+				SweepPoint point = running.remove(future);
+				point.getReplicaStatistics().add(future.get());
+				if (point.getFinished() >= this.minReplicas
+						&& point.getFinalHalfWidth(this.stoppingLevel) <= this.targetHalfWidth) {
+					point.setConverged();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Sweep interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Replica failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Iterator<SweepPoint> pointsIt = this.points.iterator();
+		while (pointsIt.hasNext()) {
+			SweepPoint point = pointsIt.next();
+			SkatingRink.LOG.info("Sweep point " + point.getWidth() + "x" + point.getHeight() + ", "
+					+ point.getSkaters() + " skaters: " + point.getFinished() + " replicas, final half width "
+					+ point.getFinalHalfWidth());
+		}
+	}
+
+	/**
+	 * Selects the point to receive the next replica: first the points that have not yet been given the minimum number
+	 * of replicas, then the open point with the widest confidence interval. Points waiting for their minimum replicas
+	 * to finish receive no further replicas, as their precision is not known yet.
+	 *
+	 * @return the point to receive the next replica, or null if no point needs another replica right now
+	 */
+	SweepPoint nextPoint() {
+		SweepPoint widest = null;
+		double widestHalfWidth = -1.0;
+		Iterator<SweepPoint> pointsIt = this.points.iterator();
+		while (pointsIt.hasNext()) {
+			SweepPoint point = pointsIt.next();
+			if (point.getLaunched() < this.minReplicas) {
+				return point;
+			}
+			if (point.isConverged() || point.getLaunched() >= this.maxReplicas
+					|| point.getFinished() < this.minReplicas) {
+				continue;
+			}
+			double halfWidth = point.getFinalHalfWidth(this.stoppingLevel);
+			if (halfWidth > widestHalfWidth) {
+				widest = point;
+				widestHalfWidth = halfWidth;
+			}
+		}
+		return widest;
+	}
+
+	/**
+	 * @return the parameter points
+	 */
+	public List<SweepPoint> getPoints() {
+		return points;
+	}
+
+}
@@ -0,0 +1,150 @@
+package nl.uu.mal;
+
+/**
+ * Class representing a single parameter point of a {@link Sweep}: the layout of the skating rink, the number of
+ * skaters and rounds, and the statistics over all finished replicas of this point.
+ *
+ * @author h.nunner
+ */
+public class SweepPoint {
+
+	// parameters
+	private int width;
+	private int height;
+	private int skaters;
+	private int rounds;
+
+	// replicas
+	private ReplicaStatistics replicaStatistics;
+	private int launched;
+	private boolean converged;
+
+
+	/**
+	 * Constructor - creates a new parameter point.
+	 *
+	 * @param width
+	 * 			the width of the skating rink
+	 * @param height
+	 * 			the height of the skating rink
+	 * @param skaters
+	 * 			the number of skaters
+	 * @param rounds
+	 * 			the number of simulation rounds
+	 */
+	public SweepPoint(int width, int height, int skaters, int rounds) {
+		this.width = width;
+		this.height = height;
+		this.skaters = skaters;
+		this.rounds = rounds;
+		this.replicaStatistics = new ReplicaStatistics();
+		this.launched = 0;
+		this.converged = false;
+	}
+
+
+	/**
+	 * Gets the widest confidence interval of the final mean payoffs over all angles, i.e. the precision the point has
+	 * reached so far, at the confidence level defined in {@link Properties#CONFIDENCE_LEVEL}.
+	 *
+	 * @return the largest half width of the confidence intervals in the last recorded round, infinite for less than
+	 * 			two finished replicas
+	 */
+	public double getFinalHalfWidth() {
+		return getFinalHalfWidth(Properties.CONFIDENCE_LEVEL);
+	}
+
+	/**
+	 * Gets the widest confidence interval of the final mean payoffs over all angles at a given confidence level.
+	 *
+	 * @param level
+	 * 			the confidence level
+	 * @return the largest half width of the confidence intervals in the last recorded round, infinite for less than
+	 * 			two finished replicas
+	 */
+	public double getFinalHalfWidth(double level) {
+		if (this.replicaStatistics.getReplicas() < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		int lastSample = this.replicaStatistics.getSampleCount() - 1;
+		double halfWidth = 0.0;
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			halfWidth = Math.max(halfWidth,
+					this.replicaStatistics.getConfidenceHalfWidth(lastSample, actionIndex, level));
+		}
+		return halfWidth;
+	}
+
+	/**
+	 * Registers the launch of a new replica.
+	 *
+	 * @return the number of the replica, starting at 0
+	 */
+	int launch() {
+		return this.launched++;
+	}
+
+	/**
+	 * Marks the point as precise enough, so no more replicas are launched.
+	 */
+	void setConverged() {
+		this.converged = true;
+	}
+
+	/**
+	 * @return the width of the skating rink
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the skating rink
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the number of skaters
+	 */
+	public int getSkaters() {
+		return skaters;
+	}
+
+	/**
+	 * @return the number of simulation rounds
+	 */
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return the statistics over all finished replicas
+	 */
+	public ReplicaStatistics getReplicaStatistics() {
+		return replicaStatistics;
+	}
+
+	/**
+	 * @return the number of finished replicas
+	 */
+	public int getFinished() {
+		return replicaStatistics.getReplicas();
+	}
+
+	/**
+	 * @return the number of launched replicas, including the ones still running
+	 */
+	public int getLaunched() {
+		return launched;
+	}
+
+	/**
+	 * @return true if the target precision has been reached, false otherwise
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+}
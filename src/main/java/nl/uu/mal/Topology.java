@@ -0,0 +1,143 @@
+package nl.uu.mal;
+
+/**
+ * Class representing the topology of a {@link SkatingRink}, created from a rectangular, two-dimensional surface. The
+ * topology defines how positions are wrapped around when leaving the rectangle and how distances are measured. Each
+ * shape is a specialized implementation, with kernels for wrapping and distances that avoid branches where possible,
+ * as they are used within the collision checks of every movement.
+ *
+ * @author h.nunner
+ */
+public abstract class Topology {
+
+	// names of the available shapes
+	public static final String TORUS = "torus";
+	public static final String CYLINDER = "cylinder";
+	public static final String KLEIN_BOTTLE = "klein bottle";
+	public static final String BOUNDED = "bounded";
+
+	// dimensions of the rectangular surface
+	protected final double width;
+	protected final double height;
+
+
+	/**
+	 * Constructor - creates a new topology.
+	 *
+	 * @param width
+	 * 			the width of the rectangular surface
+	 * @param height
+	 * 			the height of the rectangular surface
+	 */
+	protected Topology(double width, double height) {
+		this.width = width;
+		this.height = height;
+	}
+
+
+	/**
+	 * Creates the topology of a given shape.
+	 *
+	 * @param shape
+	 * 			the name of the shape
+	 * @param width
+	 * 			the width of the rectangular surface
+	 * @param height
+	 * 			the height of the rectangular surface
+	 * @return the topology
+	 */
+	public static Topology create(String shape, int width, int height) {
+		if (TORUS.equals(shape)) {
+			return new TorusTopology(width, height);
+		} else if (CYLINDER.equals(shape)) {
+			return new CylinderTopology(width, height);
+		} else if (KLEIN_BOTTLE.equals(shape)) {
+			return new KleinBottleTopology(width, height);
+		} else if (BOUNDED.equals(shape)) {
+			return new BoundedTopology(width, height);
+		}
+		throw new IllegalArgumentException("Unknown shape: " + shape);
+	}
+
+	/**
+	 * Wraps a coordinate periodically into the interval [0, length).
+	 *
+	 * @param value
+	 * 			the coordinate
+	 * @param length
+	 * 			the length of the interval
+	 * @return the wrapped coordinate
+	 */
+	protected static double wrapPeriodic(double value, double length) {
+		return value - length * Math.floor(value / length);
+	}
+
+	/**
+	 * Gets the shortest difference between two coordinates, when repeating with a given period.
+	 *
+	 * @param delta
+	 * 			the difference between the two coordinates
+	 * @param period
+	 * 			the period
+	 * @return the shortest difference, within [-period / 2, period / 2]
+	 */
+	protected static double minimumImage(double delta, double period) {
+		return delta - period * Math.rint(delta / period);
+	}
+
+	/**
+	 * Wraps a position that may lie outside of the rectangular surface onto the surface.
+	 *
+	 * @param x
+	 * 			the x-coordinate, possibly outside of the surface
+	 * @param y
+	 * 			the y-coordinate, possibly outside of the surface
+	 * @return the position on the surface, or null if the position cannot be reached (e.g. behind a wall)
+	 */
+	public abstract Position wrap(double x, double y);
+
+	/**
+	 * Gets the squared distance between two positions on the surface, taking all ways around the surface into account.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the squared shortest distance
+	 */
+	public abstract double squaredDistance(double x1, double y1, double x2, double y2);
+
+	/**
+	 * Gets the direction from the first to the second position along the shortest way.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the angle of the direction in degrees, within [-180, 180]
+	 */
+	public abstract double direction(double x1, double y1, double x2, double y2);
+
+	/**
+	 * @return the width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height
+	 */
+	public double getHeight() {
+		return height;
+	}
+
+}
@@ -0,0 +1,78 @@
+package nl.uu.mal;
+
+/**
+ * Topology of a torus: leaving the rectangle on one side means entering it on the opposite side, in both directions
+ * (for more details, see: https://commons.wikimedia.org/wiki/File:Torus_from_rectangle.gif).
+ *
+ * There are no walls, so every position can be reached. The plane is tiled by copies of the rectangle, and distances
+ * and directions are taken to the nearest copy of the second position (minimum image) in both directions.
+ *
+ * @author h.nunner
+ */
+public final class TorusTopology extends Topology {
+
+	/**
+	 * Constructor - creates a new torus.
+	 *
+	 * @param width
+	 * 			the width of the rectangular surface
+	 * @param height
+	 * 			the height of the rectangular surface
+	 */
+	public TorusTopology(double width, double height) {
+		super(width, height);
+	}
+
+	/**
+	 * Wraps a position onto the rectangle, periodically in both directions.
+	 *
+	 * @param x
+	 * 			the x-coordinate, possibly outside of the surface
+	 * @param y
+	 * 			the y-coordinate, possibly outside of the surface
+	 * @return the position on the surface, never null
+	 */
+	@Override
+	public Position wrap(double x, double y) {
+		return new Position(wrapPeriodic(x, width), wrapPeriodic(y, height));
+	}
+
+	/**
+	 * Gets the squared distance to the nearest copy of the second position, both horizontally and vertically.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the squared shortest distance
+	 */
+	@Override
+	public double squaredDistance(double x1, double y1, double x2, double y2) {
+		double dx = minimumImage(x2 - x1, width);
+		double dy = minimumImage(y2 - y1, height);
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Gets the direction to the nearest copy of the second position, which may lie across any edge of the rectangle.
+	 *
+	 * @param x1
+	 * 			the x-coordinate of the first position
+	 * @param y1
+	 * 			the y-coordinate of the first position
+	 * @param x2
+	 * 			the x-coordinate of the second position
+	 * @param y2
+	 * 			the y-coordinate of the second position
+	 * @return the angle of the direction in degrees, within [-180, 180]
+	 */
+	@Override
+	public double direction(double x1, double y1, double x2, double y2) {
+		return Math.toDegrees(Math.atan2(minimumImage(y2 - y1, height), minimumImage(x2 - x1, width)));
+	}
+
+}
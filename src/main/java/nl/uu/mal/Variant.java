@@ -0,0 +1,66 @@
+package nl.uu.mal;
+
+/**
+ * Simple bean representing the parameters of a variant of a simulation, as forked from a running {@link SkatingRink}
+ * (see {@link SkatingRink#fork(Variant)}).
+ *
+ * @author h.nunner
+ */
+public class Variant {
+
+	// parameters
+	private double epsilon;
+	private int highReward;
+	private int lowReward;
+	private long seed;
+
+
+	/**
+	 * Constructor - creates a new variant.
+	 *
+	 * @param epsilon
+	 * 			the ratio of exploration
+	 * @param highReward
+	 * 			the reward for a movement without collision
+	 * @param lowReward
+	 * 			the reward for a collision
+	 * @param seed
+	 * 			the seed for all random decisions of the variant
+	 */
+	public Variant(double epsilon, int highReward, int lowReward, long seed) {
+		this.epsilon = epsilon;
+		this.highReward = highReward;
+		this.lowReward = lowReward;
+		this.seed = seed;
+	}
+
+
+	/**
+	 * @return the ratio of exploration
+	 */
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * @return the reward for a movement without collision
+	 */
+	public int getHighReward() {
+		return highReward;
+	}
+
+	/**
+	 * @return the reward for a collision
+	 */
+	public int getLowReward() {
+		return lowReward;
+	}
+
+	/**
+	 * @return the seed for all random decisions of the variant
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+}
@@ -1,6 +1,5 @@
 package nl.uu.mal;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -12,48 +11,61 @@ public class ActionTest {
 
 	@Test
 	public void payoffsTest() {
-		List<Action> actions = Action.createAvailableActions();
-		Action action = actions.get(0);
+		PopulationStore store = new HeapPopulationStore();
+		store.ensureCapacity(1);
+		Action action = Action.getAvailableActions().get(0);
 
 		for (int i = 0; i < 10; i++) {
 			if (i % 2 == 0) {
-				action.giveHighReward();
+				store.giveReward(0, action.getIndex(), Properties.HIGH_REWARD);
 			} else {
-				action.giveLowReward();
+				store.giveReward(0, action.getIndex(), Properties.LOW_REWARD);
 			}
 		}
-		action.updateMeanPayoff(10);	// all together 10 round of simulation
+		store.updateMeanPayoffs(0, 10);	// all together 10 round of simulation
 
 		int expCumulatedPayoff = 5 * Properties.HIGH_REWARD + 5 * Properties.LOW_REWARD;
 		double expMeanPayoff = Double.valueOf(expCumulatedPayoff) / Double.valueOf(10);
 
-		Assert.assertEquals(expCumulatedPayoff, action.getCumulatedPayoff());
-		Assert.assertEquals(expMeanPayoff, action.getMeanPayoff(), 0.01);
+		Assert.assertEquals(expCumulatedPayoff, store.getCumulatedPayoff(0, action.getIndex()));
+		Assert.assertEquals(expMeanPayoff, store.getMeanPayoff(0, action.getIndex()), 0.01);
 	}
 
-	@SuppressWarnings("deprecation")	// action.setCumulatedPayoff(..) kept for this kind of testing, not meant for production
 	@Test
-	public void sortingActionsTest() {
+	public void bestActionTest() {
 		Random rand = new Random();
+		PopulationStore store = new HeapPopulationStore();
+		store.ensureCapacity(1);
 
-		List<Action> actions = Action.createAvailableActions();
+		List<Action> actions = Action.getAvailableActions();
 		Iterator<Action> it = actions.iterator();
 		while (it.hasNext()) {
 			Action action = it.next();
-			action.setCumulatedPayoff(rand.nextInt());
+			store.setCumulatedPayoff(0, action.getIndex(), rand.nextInt(3));
 		}
 
-		Collections.sort(actions);
-		Action prevAction = null;
+		int best = store.getBestAction(0);
 		it = actions.iterator();
 		while (it.hasNext()) {
 			Action action = it.next();
-			if (prevAction == null) {
-				prevAction = action;
+			if (action.getIndex() < best) {
+				// ties are resolved in favor of the smallest angle
+				Assert.assertTrue(store.getCumulatedPayoff(0, best) > store.getCumulatedPayoff(0, action.getIndex()));
 			} else {
-				Assert.assertTrue(prevAction.getCumulatedPayoff() > action.getCumulatedPayoff());
+				Assert.assertTrue(store.getCumulatedPayoff(0, best) >= store.getCumulatedPayoff(0, action.getIndex()));
 			}
 		}
 	}
 
+	@Test
+	public void sharedActionsTest() {
+		List<Action> actions = Action.getAvailableActions();
+		Assert.assertEquals(Properties.ACTION_COUNT, actions.size());
+		for (int i = 0; i < actions.size(); i++) {
+			Assert.assertSame(actions.get(i), Action.get(i));
+			Assert.assertEquals(i, actions.get(i).getIndex());
+			Assert.assertEquals(i * Properties.BASE_ANGLE, actions.get(i).getAngle());
+		}
+	}
+
 }
@@ -0,0 +1,123 @@
+package nl.uu.mal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockedMoveCacheTest {
+
+	// 5 x 5 cells of size 2
+	private static final int SIZE = 10;
+	private static final double CELL_SIZE = 1.8;
+
+	private static BlockedMoveCache createCache(String shape) {
+		return new BlockedMoveCache(Topology.create(shape, SIZE, SIZE), CELL_SIZE);
+	}
+
+	@Test
+	public void invalidationTest() {
+		BlockedMoveCache cache = createCache(Topology.TORUS);
+		Assert.assertFalse(cache.isBlocked(0, 2, 5.0, 5.0));
+
+		cache.setBlocked(0, 2, 5.0, 5.0);
+		Assert.assertTrue(cache.isBlocked(0, 2, 5.0, 5.0));
+		Assert.assertFalse(cache.isBlocked(0, 3, 5.0, 5.0));
+		Assert.assertFalse(cache.isBlocked(1, 2, 5.0, 5.0));
+
+		// movements far away do not matter
+		cache.moved(9.0, 9.0, 9.5, 9.0);
+		cache.added(1.0, 9.0);
+		Assert.assertTrue(cache.isBlocked(0, 2, 5.0, 5.0));
+
+		// movement within an adjacent cell
+		cache.moved(7.0, 7.0, 7.5, 7.0);
+		Assert.assertFalse(cache.isBlocked(0, 2, 5.0, 5.0));
+
+		// a skater appearing nearby
+		cache.setBlocked(0, 2, 5.0, 5.0);
+		cache.added(3.5, 5.0);
+		Assert.assertFalse(cache.isBlocked(0, 2, 5.0, 5.0));
+
+		// a skater leaving the neighbourhood
+		cache.setBlocked(0, 2, 5.0, 5.0);
+		cache.moved(3.5, 5.0, 1.5, 5.0);
+		Assert.assertFalse(cache.isBlocked(0, 2, 5.0, 5.0));
+	}
+
+	@Test
+	public void ownMovementTest() {
+		BlockedMoveCache cache = createCache(Topology.TORUS);
+		cache.setBlocked(0, 2, 5.0, 5.0);
+		// the skater itself moved into another cell, with nothing else moving
+		Assert.assertFalse(cache.isBlocked(0, 2, 7.0, 5.0));
+		Assert.assertTrue(cache.isBlocked(0, 2, 5.0, 5.0));
+	}
+
+	@Test
+	public void torusEdgeTest() {
+		BlockedMoveCache cache = createCache(Topology.TORUS);
+
+		// adjacent across the left and right edges
+		cache.setBlocked(0, 0, 0.5, 5.0);
+		cache.moved(9.5, 5.0, 9.6, 5.0);
+		Assert.assertFalse(cache.isBlocked(0, 0, 0.5, 5.0));
+
+		// adjacent across the corner
+		cache.setBlocked(0, 0, 0.5, 0.5);
+		cache.moved(9.5, 9.5, 9.5, 9.6);
+		Assert.assertFalse(cache.isBlocked(0, 0, 0.5, 0.5));
+
+		// not adjacent
+		cache.setBlocked(0, 0, 0.5, 5.0);
+		cache.moved(7.0, 5.0, 7.1, 5.0);
+		Assert.assertTrue(cache.isBlocked(0, 0, 0.5, 5.0));
+	}
+
+	@Test
+	public void boundedEdgeTest() {
+		BlockedMoveCache cache = createCache(Topology.BOUNDED);
+
+		// no neighbourhood across the walls
+		cache.setBlocked(0, 0, 0.5, 5.0);
+		cache.moved(9.5, 5.0, 9.6, 5.0);
+		Assert.assertTrue(cache.isBlocked(0, 0, 0.5, 5.0));
+	}
+
+	@Test
+	public void kleinBottleEdgeTest() {
+		BlockedMoveCache cache = createCache(Topology.KLEIN_BOTTLE);
+
+		// across the top edge, the adjacent cells are mirrored horizontally: column 1 is next to column 3
+		cache.setBlocked(0, 0, 3.0, 9.5);
+		cache.moved(3.0, 1.0, 3.1, 1.0);
+		Assert.assertTrue(cache.isBlocked(0, 0, 3.0, 9.5));
+		cache.moved(7.0, 1.0, 7.1, 1.0);
+		Assert.assertFalse(cache.isBlocked(0, 0, 3.0, 9.5));
+
+		// and the other way round, across the bottom edge
+		cache.setBlocked(0, 0, 7.0, 0.5);
+		cache.moved(7.0, 9.0, 7.1, 9.0);
+		Assert.assertTrue(cache.isBlocked(0, 0, 7.0, 0.5));
+		cache.moved(3.0, 9.0, 3.1, 9.0);
+		Assert.assertFalse(cache.isBlocked(0, 0, 7.0, 0.5));
+
+		// left and right edges are not mirrored
+		cache.setBlocked(0, 0, 0.5, 5.0);
+		cache.moved(9.5, 5.0, 9.6, 5.0);
+		Assert.assertFalse(cache.isBlocked(0, 0, 0.5, 5.0));
+	}
+
+	@Test
+	public void permuteTest() {
+		BlockedMoveCache cache = createCache(Topology.TORUS);
+		cache.setBlocked(0, 1, 1.0, 1.0);
+		cache.setBlocked(2, 4, 5.0, 5.0);
+
+		// 0 -> 2, 1 -> 0, 2 -> 1
+		cache.permute(new int[] { 2, 0, 1 });
+		Assert.assertTrue(cache.isBlocked(2, 1, 1.0, 1.0));
+		Assert.assertTrue(cache.isBlocked(1, 4, 5.0, 5.0));
+		Assert.assertFalse(cache.isBlocked(0, 1, 1.0, 1.0));
+		Assert.assertFalse(cache.isBlocked(2, 4, 5.0, 5.0));
+	}
+
+}
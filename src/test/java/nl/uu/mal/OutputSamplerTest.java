@@ -0,0 +1,105 @@
+package nl.uu.mal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OutputSamplerTest {
+
+	private static final int ROUNDS = 23;
+	private static final int SKATERS = 10000;
+
+	@Test
+	public void roundStrideTest() {
+		OutputSampler sampler = new OutputSampler(5, false, 1.0, 0L, false);
+		for (int round = 1; round <= ROUNDS; round++) {
+			// every 5th round and the last one
+			Assert.assertEquals(round % 5 == 0 || round == ROUNDS, sampler.isRoundSampled(round, ROUNDS));
+		}
+	}
+
+	@Test
+	public void lastRoundOnlyTest() {
+		OutputSampler sampler = new OutputSampler(5, true, 1.0, 0L, false);
+		for (int round = 1; round < ROUNDS; round++) {
+			Assert.assertFalse(sampler.isRoundSampled(round, ROUNDS));
+		}
+		Assert.assertTrue(sampler.isRoundSampled(ROUNDS, ROUNDS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidStrideTest() {
+		new OutputSampler(0, false, 1.0, 0L, false);
+	}
+
+	@Test
+	public void skaterFractionTest() {
+		OutputSampler sampler = new OutputSampler(1, false, 0.25, 42L, false);
+		OutputSampler sameSeed = new OutputSampler(1, false, 0.25, 42L, false);
+		OutputSampler otherSeed = new OutputSampler(1, false, 0.25, 43L, false);
+
+		int sampled = 0;
+		int differences = 0;
+		for (int skaterIndex = 0; skaterIndex < SKATERS; skaterIndex++) {
+			boolean isSampled = sampler.isSkaterSampled(skaterIndex);
+			// the subset only depends on the seed
+			Assert.assertEquals(isSampled, sameSeed.isSkaterSampled(skaterIndex));
+			Assert.assertEquals(isSampled, sampler.isSkaterSampled(skaterIndex));
+			if (isSampled) {
+				sampled++;
+			}
+			if (isSampled != otherSeed.isSkaterSampled(skaterIndex)) {
+				differences++;
+			}
+		}
+		Assert.assertEquals(0.25, Double.valueOf(sampled) / SKATERS, 0.02);
+		Assert.assertTrue(differences > 0);
+
+		OutputSampler all = new OutputSampler(1, false, 1.0, 42L, false);
+		OutputSampler none = new OutputSampler(1, false, 0.0, 42L, false);
+		for (int skaterIndex = 0; skaterIndex < 100; skaterIndex++) {
+			Assert.assertTrue(all.isSkaterSampled(skaterIndex));
+			Assert.assertFalse(none.isSkaterSampled(skaterIndex));
+		}
+	}
+
+	@Test
+	public void changesOnlyTest() {
+		OutputSampler sampler = new OutputSampler(1, false, 1.0, 0L, true);
+		int[] payoffs = new int[Properties.ACTION_COUNT];
+
+		// first record of each skater, even without payoffs
+		Assert.assertTrue(sampler.isChangeSampled(0, payoffs));
+		Assert.assertTrue(sampler.isChangeSampled(5, payoffs));
+		Assert.assertFalse(sampler.isChangeSampled(0, payoffs));
+
+		payoffs[3] = 10;
+		Assert.assertTrue(sampler.isChangeSampled(0, payoffs));
+		Assert.assertFalse(sampler.isChangeSampled(0, payoffs));
+		// compared to the payoffs of the same skater only
+		Assert.assertTrue(sampler.isChangeSampled(5, payoffs));
+
+		OutputSampler all = new OutputSampler(1, false, 1.0, 0L, false);
+		Assert.assertTrue(all.isChangeSampled(0, payoffs));
+		Assert.assertTrue(all.isChangeSampled(0, payoffs));
+	}
+
+	@Test
+	public void copyRulesTest() {
+		OutputSampler sampler = new OutputSampler(3, false, 0.5, 42L, true);
+		int[] payoffs = new int[Properties.ACTION_COUNT];
+		Assert.assertTrue(sampler.isChangeSampled(0, payoffs));
+
+		OutputSampler copy = sampler.copyRules();
+		// same rules
+		for (int round = 1; round <= ROUNDS; round++) {
+			Assert.assertEquals(sampler.isRoundSampled(round, ROUNDS), copy.isRoundSampled(round, ROUNDS));
+		}
+		for (int skaterIndex = 0; skaterIndex < 100; skaterIndex++) {
+			Assert.assertEquals(sampler.isSkaterSampled(skaterIndex), copy.isSkaterSampled(skaterIndex));
+		}
+		// but nothing recorded yet
+		Assert.assertTrue(copy.isChangeSampled(0, payoffs));
+		Assert.assertFalse(sampler.isChangeSampled(0, payoffs));
+	}
+
+}
@@ -0,0 +1,96 @@
+package nl.uu.mal;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PayoffHistoryTest {
+
+	private static final int ROUNDS = 20;
+	private static final int SKATERS = 3;
+
+	private static void fill(PayoffHistory history) {
+		int[] payoffs = new int[Properties.ACTION_COUNT];
+		for (int round = 1; round <= ROUNDS; round++) {
+			for (int skater = 0; skater < SKATERS; skater++) {
+				for (int i = 0; i < payoffs.length; i++) {
+					payoffs[i] = round * 100 + skater * 10 + i;
+				}
+				history.record(round, skater, payoffs);
+			}
+		}
+	}
+
+	@Test
+	public void fullHistoryTest() throws IOException {
+		PayoffHistory history = new PayoffHistory(0, 4);	// small blocks to force spilling to disk
+		fill(history);
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			int[] payoffs = history.getPayoffs(round, 1);
+			Assert.assertNotNull(payoffs);
+			Assert.assertEquals(round * 100 + 10 + 2, payoffs[2]);
+		}
+		Assert.assertEquals(ROUNDS * PayoffHistory.RECORD_WIDTH, history.getSkater(2).length);
+		Assert.assertEquals(SKATERS * PayoffHistory.RECORD_WIDTH, history.getRound(7).length);
+
+		StringWriter writer = new StringWriter();
+		history.writeCsv(writer);
+		String[] lines = writer.toString().split("\n");
+		Assert.assertEquals(ROUNDS * SKATERS, lines.length);
+		Assert.assertTrue(lines[0].startsWith("1,0,100,101,"));
+		history.close();
+	}
+
+	@Test
+	public void spilledQueryTest() {
+		// blocks spanning only a few skaters of a round, and every other round recorded
+		PayoffHistory history = new PayoffHistory(0, 4);
+		int skaters = 25;
+		int[] payoffs = new int[Properties.ACTION_COUNT];
+		for (int round = 2; round <= 2 * ROUNDS; round += 2) {
+			for (int skater = 0; skater < skaters; skater++) {
+				payoffs[0] = round * 100 + skater;
+				history.record(round, skater, payoffs);
+			}
+		}
+
+		for (int round = 1; round <= 2 * ROUNDS + 1; round++) {
+			int[] records = history.getRound(round);
+			Assert.assertEquals(round % 2 == 0 && round <= 2 * ROUNDS ? skaters * PayoffHistory.RECORD_WIDTH : 0,
+					records.length);
+			for (int i = 0; i < records.length; i += PayoffHistory.RECORD_WIDTH) {
+				Assert.assertEquals(round, records[i + PayoffHistory.ROUND]);
+				Assert.assertEquals(i / PayoffHistory.RECORD_WIDTH, records[i + PayoffHistory.SKATER]);
+			}
+		}
+		for (int skater = 0; skater < skaters; skater++) {
+			int[] records = history.getSkater(skater);
+			Assert.assertEquals(ROUNDS * PayoffHistory.RECORD_WIDTH, records.length);
+			for (int i = 0; i < records.length; i += PayoffHistory.RECORD_WIDTH) {
+				Assert.assertEquals((i / PayoffHistory.RECORD_WIDTH + 1) * 2, records[i + PayoffHistory.ROUND]);
+				Assert.assertEquals(skater, records[i + PayoffHistory.SKATER]);
+			}
+			Assert.assertEquals(1400 + skater, history.getPayoffs(14, skater)[0]);
+			Assert.assertNull(history.getPayoffs(13, skater));
+		}
+		Assert.assertEquals(0, history.getSkater(skaters).length);
+		history.close();
+	}
+
+	@Test
+	public void retainedRoundsTest() {
+		PayoffHistory history = new PayoffHistory(5, 4);
+		fill(history);
+
+		Assert.assertNull(history.getPayoffs(1, 0));
+		for (int round = ROUNDS - 4; round <= ROUNDS; round++) {
+			Assert.assertNotNull(history.getPayoffs(round, 0));
+		}
+		// at most one partially outdated block is kept in addition to the retained rounds
+		Assert.assertTrue(history.getSkater(0).length <= (5 + 4) * PayoffHistory.RECORD_WIDTH);
+	}
+
+}
@@ -0,0 +1,156 @@
+package nl.uu.mal;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PopulationStoreTest {
+
+	// more than two pages of skaters
+	private static final int SKATERS = 10000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void fill(PopulationStore store) {
+		store.ensureCapacity(SKATERS);
+		for (int slot = 0; slot < SKATERS; slot++) {
+			store.setPosition(slot, slot, -slot);
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				store.setCumulatedPayoff(slot, actionIndex, slot * 10 + actionIndex);
+				store.setMeanPayoff(slot, actionIndex, slot + actionIndex / 10.0);
+			}
+		}
+	}
+
+	private static void assertSkater(PopulationStore store, int slot, int skater) {
+		Assert.assertEquals(skater, store.getX(slot), 0.0);
+		Assert.assertEquals(-skater, store.getY(slot), 0.0);
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			Assert.assertEquals(skater * 10 + actionIndex, store.getCumulatedPayoff(slot, actionIndex));
+			Assert.assertEquals(skater + actionIndex / 10.0, store.getMeanPayoff(slot, actionIndex), 0.0);
+		}
+	}
+
+	private static void permute(PopulationStore store) {
+		fill(store);
+
+		// cycles across pages (7i + 3 mod 5000), a swap, fixed points and a cycle within a page
+		int[] slots = new int[SKATERS];
+		for (int i = 0; i < SKATERS; i++) {
+			slots[i] = i;
+		}
+		for (int i = 0; i < 5000; i++) {
+			slots[i] = (i * 7 + 3) % 5000;
+		}
+		slots[5000] = 9999;
+		slots[9999] = 5000;
+		slots[6000] = 6001;
+		slots[6001] = 6002;
+		slots[6002] = 6000;
+		store.permute(slots);
+
+		for (int i = 0; i < SKATERS; i++) {
+			assertSkater(store, slots[i], i);
+		}
+	}
+
+	private static void fork(PopulationStore store) {
+		fill(store);
+		PopulationStore fork = store.fork();
+
+		// writes on either side, within the first and the last page
+		fork.setPosition(1, 0.5, 0.5);
+		fork.giveReward(SKATERS - 1, 3, 100);
+		store.setPosition(2, 0.25, 0.25);
+		store.setMeanPayoff(SKATERS - 2, 4, -1.0);
+
+		assertSkater(store, 1, 1);
+		assertSkater(store, SKATERS - 1, SKATERS - 1);
+		assertSkater(fork, 2, 2);
+		assertSkater(fork, SKATERS - 2, SKATERS - 2);
+		Assert.assertEquals(0.5, fork.getX(1), 0.0);
+		Assert.assertEquals((SKATERS - 1) * 10 + 3 + 100, fork.getCumulatedPayoff(SKATERS - 1, 3));
+		Assert.assertEquals(0.25, store.getY(2), 0.0);
+		Assert.assertEquals(-1.0, store.getMeanPayoff(SKATERS - 2, 4), 0.0);
+		// untouched state is still shared
+		for (int slot = 3; slot < SKATERS - 2; slot += 97) {
+			assertSkater(store, slot, slot);
+			assertSkater(fork, slot, slot);
+		}
+
+		// a fork of a fork, and growing a fork
+		PopulationStore forkOfFork = fork.fork();
+		forkOfFork.setPosition(1, 0.75, 0.75);
+		forkOfFork.ensureCapacity(2 * SKATERS);
+		forkOfFork.setPosition(2 * SKATERS - 1, 1.0, 1.0);
+		Assert.assertEquals(0.5, fork.getX(1), 0.0);
+		Assert.assertEquals(0.75, forkOfFork.getX(1), 0.0);
+		Assert.assertEquals(1.0, forkOfFork.getX(2 * SKATERS - 1), 0.0);
+
+		// closing the original leaves the forks usable
+		store.close();
+		assertSkater(fork, 3, 3);
+		Assert.assertEquals(0.75, forkOfFork.getX(1), 0.0);
+		fork.close();
+		forkOfFork.close();
+	}
+
+	@Test
+	public void heapForkTest() {
+		fork(new HeapPopulationStore());
+	}
+
+	@Test
+	public void directForkTest() {
+		fork(new OffHeapPopulationStore(null));
+	}
+
+	@Test
+	public void mappedForkTest() throws IOException {
+		File directory = folder.newFolder();
+		OffHeapPopulationStore store = new OffHeapPopulationStore(directory);
+		fill(store);
+		OffHeapPopulationStore fork = store.fork();
+		fork.setPosition(1, 0.5, 0.5);
+		store.setPosition(1, 0.25, 0.25);
+
+		// copied chunks are kept in files of the stores themselves
+		File[] files = directory.listFiles();
+		Assert.assertEquals(2, files.length);
+		for (int i = 0; i < files.length; i++) {
+			Assert.assertTrue(files[i].length() > 0);
+		}
+		Assert.assertEquals(0.5, fork.getX(1), 0.0);
+		Assert.assertEquals(0.25, store.getX(1), 0.0);
+		fork.close();
+		store.close();
+		Assert.assertEquals(0, directory.listFiles().length);
+
+		fork(new OffHeapPopulationStore(folder.newFolder()));
+	}
+
+	@Test
+	public void heapPermuteTest() {
+		permute(new HeapPopulationStore());
+	}
+
+	@Test
+	public void directPermuteTest() {
+		OffHeapPopulationStore store = new OffHeapPopulationStore(null);
+		permute(store);
+		store.close();
+	}
+
+	@Test
+	public void mappedPermuteTest() throws IOException {
+		OffHeapPopulationStore store = new OffHeapPopulationStore(folder.newFolder());
+		permute(store);
+		store.close();
+	}
+
+}
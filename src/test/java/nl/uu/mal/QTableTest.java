@@ -0,0 +1,114 @@
+package nl.uu.mal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QTableTest {
+
+	// several pages of skaters
+	private static final int SKATERS = 200;
+
+	private static QTable createQTable() {
+		QTable qTable = new QTable(SKATERS);
+		for (int skaterIndex = 0; skaterIndex < SKATERS; skaterIndex++) {
+			// state 0 is never updated, so its values stay 0
+			qTable.update(skaterIndex, 1, 2, skaterIndex + 1, 0);
+			qTable.update(skaterIndex, 5, 7, -skaterIndex - 1, 0);
+		}
+		return qTable;
+	}
+
+	private static void assertSkater(QTable qTable, int row, int skaterIndex) {
+		Assert.assertEquals(Properties.LEARNING_RATE * (skaterIndex + 1), qTable.getValue(row, 1, 2), 1e-4);
+		Assert.assertEquals(-Properties.LEARNING_RATE * (skaterIndex + 1), qTable.getValue(row, 5, 7), 1e-4);
+		Assert.assertEquals(0.0f, qTable.getValue(row, 1, 3), 0.0f);
+		Assert.assertEquals(2, qTable.getBestAction(row, 1));
+	}
+
+	private static void assertSkaterUpdate(QTable qTable, int skaterIndex) {
+		Assert.assertEquals(Properties.LEARNING_RATE * (skaterIndex + 1), qTable.getValue(skaterIndex, 1, 2), 1e-4);
+	}
+
+	@Test
+	public void forkTest() {
+		QTable qTable = createQTable();
+		QTable fork = qTable.fork();
+
+		// writes on either side, within the first and the last page
+		fork.update(0, 1, 2, 1000, 0);
+		fork.update(SKATERS - 1, 1, 2, 1000, 0);
+		qTable.update(1, 1, 4, 1000, 0);
+
+		Assert.assertEquals(4, qTable.getBestAction(1, 1));
+		Assert.assertEquals(2, fork.getBestAction(1, 1));
+		Assert.assertTrue(fork.getValue(0, 1, 2) > qTable.getValue(0, 1, 2));
+		assertSkater(qTable, 0, 0);
+		assertSkater(qTable, SKATERS - 1, SKATERS - 1);
+		// untouched values are still shared
+		for (int i = 2; i < SKATERS - 1; i++) {
+			assertSkater(qTable, i, i);
+			assertSkater(fork, i, i);
+		}
+
+		// a fork of a fork, and growing a fork
+		QTable forkOfFork = fork.fork();
+		forkOfFork.ensureCapacity(2 * SKATERS);
+		forkOfFork.update(2 * SKATERS - 1, 1, 6, 1000, 0);
+		forkOfFork.update(5, 1, 2, -1000, 0);
+		Assert.assertTrue(forkOfFork.getCapacity() >= 2 * SKATERS);
+		Assert.assertEquals(6, forkOfFork.getBestAction(2 * SKATERS - 1, 1));
+		assertSkater(fork, 5, 5);
+		assertSkater(qTable, 5, 5);
+	}
+
+	@Test
+	public void ensureCapacityTest() {
+		QTable qTable = new QTable(0);
+		Assert.assertEquals(0, qTable.getCapacity());
+
+		// growing one skater at a time only allocates the pages needed so far
+		for (int skaters = 1; skaters <= SKATERS; skaters++) {
+			qTable.ensureCapacity(skaters);
+			Assert.assertTrue(qTable.getCapacity() >= skaters);
+			// less than a page of 64 skaters ahead
+			Assert.assertTrue(qTable.getCapacity() < skaters + 64);
+			qTable.update(skaters - 1, 1, 2, skaters, 0);
+		}
+		// shrinking requests keep all values
+		qTable.ensureCapacity(1);
+		for (int skaterIndex = 0; skaterIndex < SKATERS; skaterIndex++) {
+			assertSkaterUpdate(qTable, skaterIndex);
+		}
+
+		// a fork grows independently
+		QTable fork = qTable.fork();
+		fork.ensureCapacity(3 * SKATERS);
+		fork.update(3 * SKATERS - 1, 1, 2, 1, 0);
+		Assert.assertTrue(fork.getCapacity() >= 3 * SKATERS);
+		Assert.assertTrue(qTable.getCapacity() < 3 * SKATERS);
+		assertSkaterUpdate(fork, SKATERS - 1);
+	}
+
+	@Test
+	public void permuteTest() {
+		QTable qTable = createQTable();
+
+		// reverse order, except for a cycle within the first page
+		int[] slots = new int[SKATERS];
+		for (int i = 0; i < SKATERS; i++) {
+			slots[i] = SKATERS - 1 - i;
+		}
+		slots[0] = 1;
+		slots[1] = 2;
+		slots[2] = 0;
+		slots[SKATERS - 1] = SKATERS - 1;
+		slots[SKATERS - 2] = SKATERS - 2;
+		slots[SKATERS - 3] = SKATERS - 3;
+		qTable.permute(slots);
+
+		for (int i = 0; i < SKATERS; i++) {
+			assertSkater(qTable, slots[i], i);
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package nl.uu.mal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jfree.data.xy.XYSeries;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReplicaStatisticsTest {
+
+	private static final int[] ROUNDS = { 1, 2, 3 };
+	private static final double[] VALUES = { 4.0, 7.0, 13.0, 16.0, 1000000.5 };
+
+	private static Map<Integer, XYSeries> createPayoffsPerAngle(int[] rounds, double value) {
+		Map<Integer, XYSeries> payoffsPerAngle = new HashMap<Integer, XYSeries>();
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			int angle = actionIndex * Properties.BASE_ANGLE;
+			XYSeries series = new XYSeries(angle);
+			for (int i = 0; i < rounds.length; i++) {
+				// different values per round and angle, same spread over replicas
+				series.add(rounds[i], value + rounds[i] * 100 + actionIndex);
+			}
+			payoffsPerAngle.put(angle, series);
+		}
+		return payoffsPerAngle;
+	}
+
+	@Test
+	public void welfordTest() {
+		ReplicaStatistics statistics = new ReplicaStatistics();
+		Assert.assertEquals(0, statistics.getSampleCount());
+		for (int i = 0; i < VALUES.length; i++) {
+			statistics.add(createPayoffsPerAngle(ROUNDS, VALUES[i]));
+		}
+
+		// two-pass reference
+		double mean = 0.0;
+		for (int i = 0; i < VALUES.length; i++) {
+			mean += VALUES[i];
+		}
+		mean /= VALUES.length;
+		double variance = 0.0;
+		for (int i = 0; i < VALUES.length; i++) {
+			variance += (VALUES[i] - mean) * (VALUES[i] - mean);
+		}
+		variance /= VALUES.length - 1;
+
+		Assert.assertEquals(VALUES.length, statistics.getReplicas());
+		Assert.assertEquals(ROUNDS.length, statistics.getSampleCount());
+		for (int sample = 0; sample < ROUNDS.length; sample++) {
+			Assert.assertEquals(ROUNDS[sample], statistics.getRound(sample));
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				Assert.assertEquals(mean + ROUNDS[sample] * 100 + actionIndex,
+						statistics.getMean(sample, actionIndex), 1e-6);
+				Assert.assertEquals(variance, statistics.getVariance(sample, actionIndex), variance * 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void confidenceBandTest() {
+		ReplicaStatistics statistics = new ReplicaStatistics();
+		statistics.add(createPayoffsPerAngle(ROUNDS, VALUES[0]));
+		Assert.assertEquals(0.0, statistics.getVariance(0, 0), 0.0);
+		Assert.assertTrue(Double.isInfinite(statistics.getConfidenceHalfWidth(0, 0)));
+
+		for (int i = 1; i < 4; i++) {
+			statistics.add(createPayoffsPerAngle(ROUNDS, VALUES[i]));
+		}
+		// 4 replicas: 4, 7, 13, 16 - variance 30, t(0.95, 3) = 3.182446
+		Assert.assertEquals(30.0, statistics.getVariance(1, 3), 1e-9);
+		Assert.assertEquals(3.182446 * Math.sqrt(30.0 / 4), statistics.getConfidenceHalfWidth(1, 3, 0.95), 1e-5);
+		Assert.assertTrue(statistics.getConfidenceHalfWidth(1, 3, 0.99) > statistics.getConfidenceHalfWidth(1, 3, 0.95));
+	}
+
+	@Test
+	public void tQuantileTest() {
+		Assert.assertEquals(12.706205, ReplicaStatistics.getTQuantile(0.95, 1), 1e-5);
+		Assert.assertEquals(4.302653, ReplicaStatistics.getTQuantile(0.95, 2), 1e-5);
+		Assert.assertEquals(2.570582, ReplicaStatistics.getTQuantile(0.95, 5), 1e-5);
+		Assert.assertEquals(3.169273, ReplicaStatistics.getTQuantile(0.99, 10), 1e-5);
+		Assert.assertEquals(2.042272, ReplicaStatistics.getTQuantile(0.95, 30), 1e-5);
+		// approaches the normal quantile
+		Assert.assertEquals(1.96, ReplicaStatistics.getTQuantile(0.95, 10000), 1e-3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void differentRoundsTest() {
+		ReplicaStatistics statistics = new ReplicaStatistics();
+		statistics.add(createPayoffsPerAngle(ROUNDS, 1.0));
+		statistics.add(createPayoffsPerAngle(new int[] { 1, 2 }, 1.0));
+	}
+
+}
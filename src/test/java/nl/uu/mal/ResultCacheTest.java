@@ -0,0 +1,143 @@
+package nl.uu.mal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResultCacheTest {
+
+	private static final int[] ROUNDS = { 1, 5 };
+	private static final int SKATERS = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static SimulationResult createResult(int value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(ROUNDS.length);
+		for (int i = 0; i < ROUNDS.length; i++) {
+			out.writeInt(ROUNDS[i]);
+		}
+		out.writeInt(SKATERS);
+		for (int i = 0; i < ROUNDS.length * Properties.ACTION_COUNT; i++) {
+			out.writeDouble(value + i / 10.0);
+		}
+		for (int i = 0; i < SKATERS * Properties.ACTION_COUNT; i++) {
+			out.writeInt(value + i);
+		}
+		out.close();
+		return SimulationResult.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	private static long getSize(SimulationResult result) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		result.write(new DataOutputStream(bytes));
+		return bytes.size();
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		ResultCache cache = new ResultCache(folder.newFolder(), 1L << 20);
+		String key = ResultCache.createKey(4, 4, SKATERS, 5, 3L);
+		Assert.assertNull(cache.get(key));
+
+		cache.put(key, createResult(7));
+		SimulationResult result = cache.get(key);
+		Assert.assertNotNull(result);
+		Assert.assertEquals(SKATERS, result.getSkaters());
+		Assert.assertEquals(ROUNDS.length, result.getSampleCount());
+		Assert.assertEquals(5, result.getRound(1));
+		Assert.assertEquals(7.0 + (Properties.ACTION_COUNT + 2) / 10.0, result.getMeanPayoff(1, 2), 0.0);
+		Assert.assertEquals(7 + Properties.ACTION_COUNT + 3, result.getFinalPayoff(1, 3));
+	}
+
+	@Test
+	public void keyTest() {
+		String key = ResultCache.createKey(4, 4, SKATERS, 5, 3L);
+		Assert.assertEquals(key, ResultCache.createKey(4, 4, SKATERS, 5, 3L));
+		Assert.assertEquals(64, key.length());
+		Assert.assertNotEquals(key, ResultCache.createKey(4, 4, SKATERS, 5, 4L));
+		Assert.assertNotEquals(key, ResultCache.createKey(4, 5, SKATERS, 5, 3L));
+		Assert.assertNotEquals(key, ResultCache.createKey(4, 4, SKATERS + 1, 5, 3L));
+		Assert.assertNotEquals(key, ResultCache.createKey(4, 4, SKATERS, 6, 3L));
+	}
+
+	@Test
+	public void evictionTest() throws IOException {
+		File directory = folder.newFolder();
+		SimulationResult result = createResult(1);
+		// room for two results
+		ResultCache cache = new ResultCache(directory, 2 * getSize(result) + getSize(result) / 2);
+
+		cache.put("a", result);
+		cache.put("b", result);
+		// make the order of use independent of the resolution of file times
+		long now = System.currentTimeMillis();
+		new File(directory, "a.result").setLastModified(now - 20000);
+		new File(directory, "b.result").setLastModified(now - 10000);
+
+		// using a makes b the least recently used result
+		Assert.assertNotNull(cache.get("a"));
+		cache.put("c", result);
+
+		Assert.assertNotNull(cache.get("a"));
+		Assert.assertNull(cache.get("b"));
+		Assert.assertNotNull(cache.get("c"));
+	}
+
+	@Test
+	public void unreadableTest() throws IOException {
+		File directory = folder.newFolder();
+		ResultCache cache = new ResultCache(directory, 1L << 20);
+
+		// a truncated result, e.g. left by a crash
+		File file = new File(directory, "broken.result");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] { 0, 0, 0, 2, 0 });
+		out.close();
+
+		Assert.assertNull(cache.get("broken"));
+		Assert.assertFalse(file.exists());
+
+		// the key is usable again
+		cache.put("broken", createResult(3));
+		Assert.assertNotNull(cache.get("broken"));
+	}
+
+	@Test
+	public void corruptLengthTest() throws IOException {
+		File directory = folder.newFolder();
+		ResultCache cache = new ResultCache(directory, 1L << 20);
+
+		// lengths of rounds and skaters that are negative, overflow or exceed the data, each followed by a few values
+		int[][] lengths = { { -1, SKATERS }, { Integer.MAX_VALUE, SKATERS }, { Integer.MAX_VALUE / 16, SKATERS },
+				{ 1, -5 }, { 1, Integer.MAX_VALUE / 4 }, { 0, Integer.MAX_VALUE / 16 } };
+		for (int i = 0; i < lengths.length; i++) {
+			File file = new File(directory, "corrupt" + i + ".result");
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+			out.writeInt(lengths[i][0]);
+			if (lengths[i][0] == 1) {
+				out.writeInt(1);
+			}
+			out.writeInt(lengths[i][1]);
+			for (int j = 0; j < 100; j++) {
+				out.writeInt(j);
+			}
+			out.close();
+
+			Assert.assertNull(cache.get("corrupt" + i));
+			Assert.assertFalse(file.exists());
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package nl.uu.mal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimulationTest {
+
+	private static final int WIDTH = 6;
+	private static final int HEIGHT = 6;
+	private static final int SKATERS = 5;
+	private static final int ROUNDS = 30;
+	private static final long SEED = 7L;
+
+	@Test
+	public void runSimulationTest() {
+		// the same run on a skating rink that is not closed
+		SkatingRink skatingRink = SkatingRink.createInstance(WIDTH, HEIGHT, SEED);
+		for (int i = 0; i < SKATERS; i++) {
+			skatingRink.addSkater(new Skater(skatingRink));
+		}
+		skatingRink.letThemSkate(ROUNDS);
+		SimulationResult expected = SimulationResult.of(skatingRink);
+
+		// the result must be taken before the skating rink of the run is closed
+		SimulationResult result = Simulation.runSimulation(WIDTH, HEIGHT, SKATERS, ROUNDS, SEED);
+		Assert.assertEquals(SKATERS, result.getSkaters());
+		Assert.assertEquals(expected.getSampleCount(), result.getSampleCount());
+		for (int skaterIndex = 0; skaterIndex < SKATERS; skaterIndex++) {
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				Assert.assertEquals(expected.getFinalPayoff(skaterIndex, actionIndex),
+						result.getFinalPayoff(skaterIndex, actionIndex));
+			}
+		}
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			Assert.assertEquals(expected.getFinalMeanPayoff(actionIndex), result.getFinalMeanPayoff(actionIndex), 0.0);
+		}
+		skatingRink.close();
+	}
+
+}
@@ -0,0 +1,104 @@
+package nl.uu.mal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SkaterTest {
+
+	private static final int SIZE = 10;
+
+	private static SkatingRink createSkatingRink(String shape, double[][] positions) {
+		SkatingRink skatingRink = SkatingRink.createInstance(shape, SIZE, SIZE, 5L);
+		skatingRink.disablePayoffHistory();
+		skatingRink.setStateAwareLearning(true);
+		for (int i = 0; i < positions.length; i++) {
+			skatingRink.addSkater(new Skater(skatingRink));
+		}
+		for (int i = 0; i < positions.length; i++) {
+			Skater skater = skatingRink.getSkaters().get(i);
+			skatingRink.getPopulationStore().setPosition(skater.getSlot(), positions[i][0], positions[i][1]);
+		}
+		return skatingRink;
+	}
+
+	private static int senseState(SkatingRink skatingRink) {
+		Skater skater = skatingRink.getSkaters().get(0);
+		return skater.senseState(skater.getX(), skater.getY(), skatingRink.getSkatersBySlot());
+	}
+
+	@Test
+	public void senseStateTest() {
+		double[][] positions = {
+				{ 0.5, 5.0 },		// the sensing skater, next to the left edge
+				{ 9.5, 5.0 },		// 180°, across the edge
+				{ 0.5, 6.2 },		// 90°
+				{ 1.5, 4.0 },		// -45°
+				{ 3.0, 5.0 } };		// beyond the sensing radius
+		int sectors = (1 << 2) | (1 << 7);
+		int acrossEdge = 1 << 4;
+
+		SkatingRink torus = createSkatingRink(Topology.TORUS, positions);
+		Assert.assertEquals(sectors | acrossEdge, senseState(torus));
+		torus.close();
+
+		// closed edges
+		SkatingRink bounded = createSkatingRink(Topology.BOUNDED, positions);
+		Assert.assertEquals(sectors, senseState(bounded));
+		bounded.close();
+
+		// alone
+		SkatingRink single = createSkatingRink(Topology.TORUS, new double[][] { { 5.0, 5.0 } });
+		Assert.assertEquals(0, senseState(single));
+		single.close();
+	}
+
+	@Test
+	public void chooseActionIndexTest() {
+		SkatingRink skatingRink = createSkatingRink(Topology.TORUS, new double[][] { { 5.0, 5.0 } });
+		// no exploration
+		SkatingRink fork = skatingRink.fork(new Variant(0.0, Properties.HIGH_REWARD, Properties.LOW_REWARD, 1L));
+		Skater skater = fork.getSkaters().get(0);
+		fork.getQTable().update(skater.getSlot(), 5, 6, 10, 0);
+
+		Assert.assertEquals(6, skater.chooseActionIndex(5, 2));
+		// ties in favor of the lowest action index
+		Assert.assertEquals(0, skater.chooseActionIndex(3, 2));
+		// the original is not affected
+		Assert.assertEquals(0.0f, skatingRink.getQTable().getValue(skater.getSlot(), 5, 6), 0.0f);
+		fork.close();
+		skatingRink.close();
+	}
+
+	@Test
+	public void updateTest() {
+		// a single skater in the middle of a closed rink, never colliding
+		SkatingRink skatingRink = createSkatingRink(Topology.BOUNDED, new double[][] { { 5.0, 5.0 } });
+		Skater skater = skatingRink.getSkaters().get(0);
+		QTable qTable = skatingRink.getQTable();
+		qTable.update(skater.getSlot(), 0, 3, 10, 0);
+		float[] values = new float[Properties.ACTION_COUNT];
+		float maxValue = 0.0f;
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			values[actionIndex] = qTable.getValue(skater.getSlot(), 0, actionIndex);
+			maxValue = Math.max(maxValue, values[actionIndex]);
+		}
+
+		skatingRink.letThemSkate(1);
+
+		// one step of Q-learning for the action performed, from and to the state without neighbours
+		int performed = 0;
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			float expected = values[actionIndex];
+			if (skater.getCumulatedPayoff(actionIndex) > 0) {
+				Assert.assertEquals(Properties.HIGH_REWARD, skater.getCumulatedPayoff(actionIndex));
+				expected += Properties.LEARNING_RATE
+						* (Properties.HIGH_REWARD + Properties.DISCOUNT_FACTOR * maxValue - values[actionIndex]);
+				performed++;
+			}
+			Assert.assertEquals(expected, qTable.getValue(skater.getSlot(), 0, actionIndex), 1e-6f);
+		}
+		Assert.assertEquals(1, performed);
+		skatingRink.close();
+	}
+
+}
@@ -0,0 +1,154 @@
+package nl.uu.mal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SkatingRinkTest {
+
+	private static SkatingRink createSkatingRink(int size, int skaters, long seed, boolean neighbourLists) {
+		SkatingRink skatingRink = SkatingRink.createInstance(size, size, seed);
+		skatingRink.disablePayoffHistory();
+		skatingRink.setNeighbourLists(neighbourLists);
+		for (int i = 0; i < skaters; i++) {
+			skatingRink.addSkater(new Skater(skatingRink));
+		}
+		return skatingRink;
+	}
+
+	private static void assertSameResult(SimulationResult expected, SimulationResult result) {
+		Assert.assertEquals(expected.getSkaters(), result.getSkaters());
+		Assert.assertEquals(expected.getSampleCount(), result.getSampleCount());
+		for (int skaterIndex = 0; skaterIndex < expected.getSkaters(); skaterIndex++) {
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				Assert.assertEquals(expected.getFinalPayoff(skaterIndex, actionIndex),
+						result.getFinalPayoff(skaterIndex, actionIndex));
+			}
+		}
+		for (int sample = 0; sample < expected.getSampleCount(); sample++) {
+			for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+				Assert.assertEquals(expected.getMeanPayoff(sample, actionIndex), result.getMeanPayoff(sample, actionIndex),
+						0.0);
+			}
+		}
+	}
+
+	private static SimulationResult run(int size, int skaters, int rounds, long seed, boolean neighbourLists) {
+		SkatingRink skatingRink = createSkatingRink(size, skaters, seed, neighbourLists);
+		skatingRink.letThemSkate(rounds);
+		SimulationResult result = SimulationResult.of(skatingRink);
+		skatingRink.close();
+		return result;
+	}
+
+	@Test
+	public void neighbourListsTest() {
+		// a single cell, crowded and crossing the edges often
+		assertSameResult(run(6, 15, 200, 1L, false), run(6, 15, 200, 1L, true));
+		// several cells
+		assertSameResult(run(30, 120, 150, 2L, false), run(30, 120, 150, 2L, true));
+	}
+
+	@Test
+	public void forkTest() {
+		SkatingRink skatingRink = createSkatingRink(8, 20, 3L, true);
+		skatingRink.letThemSkate(50);
+		SimulationResult beforeForks = SimulationResult.of(skatingRink);
+
+		Variant variant = new Variant(Properties.EPSILON_GREEDY, Properties.HIGH_REWARD, Properties.LOW_REWARD, 11L);
+		SkatingRink fork = skatingRink.fork(variant);
+		SkatingRink sameFork = skatingRink.fork(variant);
+		SkatingRink otherFork = skatingRink.fork(new Variant(0.5, 1, -5, 12L));
+		fork.letThemSkate(100);
+		otherFork.letThemSkate(100);
+		sameFork.letThemSkate(100);
+
+		// identical variants give identical results, whatever ran in between
+		assertSameResult(SimulationResult.of(fork), SimulationResult.of(sameFork));
+		Assert.assertEquals(50 + 100, fork.getCurrentRound());
+
+		// the original is unchanged, and continues as if it had never been forked
+		assertSameResult(beforeForks, SimulationResult.of(skatingRink));
+		skatingRink.letThemSkate(100);
+		assertSameResult(run(8, 20, 150, 3L, true), SimulationResult.of(skatingRink));
+
+		fork.close();
+		sameFork.close();
+		otherFork.close();
+		skatingRink.close();
+	}
+
+	@Test
+	public void runVariantsTest() {
+		SkatingRink skatingRink = createSkatingRink(10, 30, 4L, true);
+		skatingRink.letThemSkate(40);
+		List<Variant> variants = new ArrayList<Variant>();
+		for (int i = 0; i < 6; i++) {
+			// pairs of identical variants
+			variants.add(new Variant(0.05 * (i / 2 + 1), Properties.HIGH_REWARD, Properties.LOW_REWARD, 20L + i / 2));
+		}
+
+		List<SimulationResult> sequential = Simulation.runVariants(skatingRink, variants, 60, 1);
+		List<SimulationResult> concurrent = Simulation.runVariants(skatingRink, variants, 60, 4);
+		Assert.assertEquals(variants.size(), sequential.size());
+		Assert.assertEquals(variants.size(), concurrent.size());
+		for (int i = 0; i < variants.size(); i++) {
+			assertSameResult(sequential.get(i), concurrent.get(i));
+		}
+		for (int i = 0; i < variants.size(); i += 2) {
+			assertSameResult(sequential.get(i), sequential.get(i + 1));
+		}
+
+		// the original is unchanged
+		skatingRink.letThemSkate(60);
+		assertSameResult(run(10, 30, 100, 4L, true), SimulationResult.of(skatingRink));
+		skatingRink.close();
+	}
+
+	private static SkatingRink createSampledSkatingRink() {
+		SkatingRink skatingRink = createSkatingRink(6, 8, 5L, true);
+		skatingRink.setOutputSampler(new OutputSampler(5, false, 1.0, 0L, false));
+		return skatingRink;
+	}
+
+	private static void assertRounds(int[] expected, SimulationResult result) {
+		Assert.assertEquals(expected.length, result.getSampleCount());
+		for (int sample = 0; sample < expected.length; sample++) {
+			Assert.assertEquals(expected[sample], result.getRound(sample));
+		}
+	}
+
+	@Test
+	public void plannedRoundsTest() {
+		SkatingRink single = createSampledSkatingRink();
+		single.letThemSkate(23);
+		SimulationResult expected = SimulationResult.of(single);
+		assertRounds(new int[] { 5, 10, 15, 20, 23 }, expected);
+		single.close();
+
+		// without a plan, each run records its last round
+		SkatingRink split = createSampledSkatingRink();
+		split.letThemSkate(7);
+		split.letThemSkate(16);
+		assertRounds(new int[] { 5, 7, 10, 15, 20, 23 }, SimulationResult.of(split));
+		split.close();
+
+		// with a plan, only the last round of the simulation
+		SkatingRink planned = createSampledSkatingRink();
+		planned.setPlannedRounds(23);
+		planned.letThemSkate(7);
+		SkatingRink fork = planned.fork(new Variant(Properties.EPSILON_GREEDY, Properties.HIGH_REWARD,
+				Properties.LOW_REWARD, 1L));
+		planned.letThemSkate(16);
+		assertSameResult(expected, SimulationResult.of(planned));
+		planned.close();
+
+		// a fork records its own last round
+		fork.letThemSkate(6);
+		assertRounds(new int[] { 5, 10, 13 }, SimulationResult.of(fork));
+		fork.close();
+	}
+
+}
@@ -0,0 +1,126 @@
+package nl.uu.mal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jfree.data.xy.XYSeries;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SweepTest {
+
+	private static final int MIN_REPLICAS = 3;
+	private static final int MAX_REPLICAS = 12;
+	private static final double TARGET_HALF_WIDTH = 2.0;
+	private static final long BASE_SEED = 100L;
+
+	private static Map<Integer, XYSeries> createPayoffsPerAngle(double value) {
+		Map<Integer, XYSeries> payoffsPerAngle = new HashMap<Integer, XYSeries>();
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			int angle = actionIndex * Properties.BASE_ANGLE;
+			XYSeries series = new XYSeries(angle);
+			series.add(1, value);
+			payoffsPerAngle.put(angle, series);
+		}
+		return payoffsPerAngle;
+	}
+
+	private static void finish(SweepPoint point, double value) {
+		point.launch();
+		point.getReplicaStatistics().add(createPayoffsPerAngle(value));
+	}
+
+	private static double getStoppingLevel() {
+		return 1.0 - (1.0 - Properties.CONFIDENCE_LEVEL) / (MAX_REPLICAS - MIN_REPLICAS + 1);
+	}
+
+	// the number of replicas after which a point stops, folding in one replica after the other
+	private static int getStoppingReplicas(SweepPoint point, double level) {
+		ReplicaStatistics statistics = new ReplicaStatistics();
+		for (int i = 0; i < MAX_REPLICAS; i++) {
+			statistics.add(Simulation.runSimulation(point.getWidth(), point.getHeight(), point.getSkaters(),
+					point.getRounds(), BASE_SEED + i));
+			if (i + 1 >= MIN_REPLICAS && getFinalHalfWidth(statistics, level) <= TARGET_HALF_WIDTH) {
+				return i + 1;
+			}
+		}
+		return MAX_REPLICAS;
+	}
+
+	private static double getFinalHalfWidth(ReplicaStatistics statistics, double level) {
+		double halfWidth = 0.0;
+		for (int actionIndex = 0; actionIndex < Properties.ACTION_COUNT; actionIndex++) {
+			halfWidth = Math.max(halfWidth,
+					statistics.getConfidenceHalfWidth(statistics.getSampleCount() - 1, actionIndex, level));
+		}
+		return halfWidth;
+	}
+
+	@Test
+	public void allocationTest() {
+		Sweep sweep = new Sweep(1.0, 2, 4, 1, BASE_SEED);
+		SweepPoint first = sweep.addPoint(4, 4, 2, 10);
+		SweepPoint second = sweep.addPoint(4, 4, 2, 10);
+		SweepPoint third = sweep.addPoint(4, 4, 2, 10);
+
+		// the minimum number of replicas, point by point
+		for (int i = 0; i < 2; i++) {
+			Assert.assertSame(first, sweep.nextPoint());
+			first.launch();
+		}
+		Assert.assertSame(second, sweep.nextPoint());
+		second.launch();
+		second.launch();
+		third.launch();
+		Assert.assertSame(third, sweep.nextPoint());
+		third.launch();
+		// no precision known yet
+		Assert.assertNull(sweep.nextPoint());
+
+		// then the widest confidence interval, among the points whose minimum replicas finished
+		first.getReplicaStatistics().add(createPayoffsPerAngle(0.0));
+		first.getReplicaStatistics().add(createPayoffsPerAngle(1.0));
+		second.getReplicaStatistics().add(createPayoffsPerAngle(0.0));
+		second.getReplicaStatistics().add(createPayoffsPerAngle(10.0));
+		Assert.assertSame(second, sweep.nextPoint());
+		third.getReplicaStatistics().add(createPayoffsPerAngle(0.0));
+		third.getReplicaStatistics().add(createPayoffsPerAngle(100.0));
+		Assert.assertSame(third, sweep.nextPoint());
+
+		// except for points at the maximum number of replicas, or precise enough
+		finish(third, 50.0);
+		finish(third, 50.0);
+		Assert.assertEquals(4, third.getLaunched());
+		Assert.assertSame(second, sweep.nextPoint());
+		second.setConverged();
+		Assert.assertSame(first, sweep.nextPoint());
+		finish(first, 0.5);
+		finish(first, 0.5);
+		Assert.assertNull(sweep.nextPoint());
+	}
+
+	@Test
+	public void runTest() {
+		// a single worker, so the replicas finish in the order of their launch
+		Sweep sweep = new Sweep(TARGET_HALF_WIDTH, MIN_REPLICAS, MAX_REPLICAS, 1, BASE_SEED);
+		SweepPoint precise = sweep.addPoint(4, 4, 6, 10);
+		SweepPoint noisy = sweep.addPoint(4, 4, 2, 10);
+		sweep.run();
+
+		// stops early, later than it would without the correction for the repeated checks
+		int expected = getStoppingReplicas(precise, getStoppingLevel());
+		Assert.assertTrue(expected < MAX_REPLICAS);
+		Assert.assertTrue(getStoppingReplicas(precise, Properties.CONFIDENCE_LEVEL) < expected);
+		Assert.assertTrue(precise.isConverged());
+		Assert.assertEquals(expected, precise.getFinished());
+		Assert.assertEquals(expected, precise.getLaunched());
+		Assert.assertTrue(precise.getFinalHalfWidth(getStoppingLevel()) <= TARGET_HALF_WIDTH);
+
+		// reaches the maximum number of replicas
+		Assert.assertEquals(MAX_REPLICAS, getStoppingReplicas(noisy, getStoppingLevel()));
+		Assert.assertFalse(noisy.isConverged());
+		Assert.assertEquals(MAX_REPLICAS, noisy.getFinished());
+		Assert.assertTrue(noisy.getFinalHalfWidth(getStoppingLevel()) > TARGET_HALF_WIDTH);
+	}
+
+}
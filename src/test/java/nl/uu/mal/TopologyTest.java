@@ -0,0 +1,63 @@
+package nl.uu.mal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TopologyTest {
+
+	private static final double DELTA = 0.0001;
+
+	@Test
+	public void torusTest() {
+		Topology torus = Topology.create(Topology.TORUS, 5, 4);
+
+		Position position = torus.wrap(5.5, -0.5);
+		Assert.assertEquals(0.5, position.getX(), DELTA);
+		Assert.assertEquals(3.5, position.getY(), DELTA);
+
+		// shortest way around both edges
+		Assert.assertEquals(0.5 * 0.5 + 0.5 * 0.5, torus.squaredDistance(0.2, 0.1, 4.7, 3.6), DELTA);
+		Assert.assertEquals(180.0, Math.abs(torus.direction(0.2, 1.0, 4.7, 1.0)), DELTA);
+	}
+
+	@Test
+	public void cylinderTest() {
+		Topology cylinder = Topology.create(Topology.CYLINDER, 5, 4);
+
+		Assert.assertEquals(0.5, cylinder.wrap(5.5, 1.0).getX(), DELTA);
+		Assert.assertNull(cylinder.wrap(1.0, -0.1));
+		Assert.assertNull(cylinder.wrap(1.0, 4.0));
+
+		Assert.assertEquals(0.5 * 0.5, cylinder.squaredDistance(0.2, 1.0, 4.7, 1.0), DELTA);
+		Assert.assertEquals(3.5 * 3.5, cylinder.squaredDistance(1.0, 0.1, 1.0, 3.6), DELTA);
+	}
+
+	@Test
+	public void kleinBottleTest() {
+		Topology kleinBottle = Topology.create(Topology.KLEIN_BOTTLE, 5, 4);
+
+		// leaving at the top means entering at the bottom, mirrored horizontally
+		Position position = kleinBottle.wrap(1.0, 4.5);
+		Assert.assertEquals(4.0, position.getX(), DELTA);
+		Assert.assertEquals(0.5, position.getY(), DELTA);
+		position = kleinBottle.wrap(1.0, -0.5);
+		Assert.assertEquals(4.0, position.getX(), DELTA);
+		Assert.assertEquals(3.5, position.getY(), DELTA);
+		// twice around means no mirroring
+		Assert.assertEquals(1.0, kleinBottle.wrap(1.0, 8.5).getX(), DELTA);
+
+		// close across the mirrored edge, far across the regular one
+		Assert.assertEquals(0.2 * 0.2, kleinBottle.squaredDistance(1.0, 3.9, 4.0, 0.1), DELTA);
+		Assert.assertEquals(1.0, kleinBottle.squaredDistance(1.0, 2.0, 1.0, 3.0), DELTA);
+	}
+
+	@Test
+	public void boundedTest() {
+		Topology bounded = Topology.create(Topology.BOUNDED, 5, 4);
+
+		Assert.assertNull(bounded.wrap(5.5, 1.0));
+		Assert.assertEquals(2.5, bounded.wrap(2.5, 1.0).getX(), DELTA);
+		Assert.assertEquals(4.5 * 4.5, bounded.squaredDistance(0.2, 1.0, 4.7, 1.0), DELTA);
+	}
+
+}